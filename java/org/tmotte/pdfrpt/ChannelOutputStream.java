@@ -0,0 +1,187 @@
+package org.tmotte.pdfrpt;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An OutputStream that writes to a WritableByteChannel in large chunks. iText writes a PDF in many small pieces;
+ * these are gathered in a direct ByteBuffer of <code>BUFFER_SIZE</code> bytes, which only goes to the channel when
+ * it is full (or on <code>flush()</code> &amp; <code>close()</code>). Buffers are pooled and reused by later
+ * instances, since direct buffers are expensive to allocate.
+ * <p>
+ * A "spooled" ChannelOutputStream, from <code>spooled()</code>, writes everything to a temporary file instead and
+ * only sends the finished document to the channel when closed, using <code>FileChannel.transferTo()</code>, which
+ * lets the operating system copy the file without passing it through the JVM. This suits a socket, which then
+ * never receives half a document if something goes wrong along the way.</p>
+ * Not safe for concurrent use; use one per document. Channels must be in blocking mode, since a non-blocking
+ * socket that can't take more would otherwise have to be written to over &amp; over until it could.
+ * @see SimplePDF#SimplePDF(WritableByteChannel, PageInfo)
+ */
+public class ChannelOutputStream extends OutputStream {
+
+  /** The size of the staging buffer, in bytes. */
+  public final static int BUFFER_SIZE=64*1024;
+
+  private final static int maxPooled=32;
+  private final static ConcurrentLinkedQueue<ByteBuffer> pool=new ConcurrentLinkedQueue<ByteBuffer>();
+  private final static AtomicInteger pooled=new AtomicInteger();
+
+  private final WritableByteChannel channel;
+  private ByteBuffer buffer;
+
+  //Only when spooling:
+  private final Path spoolFile;
+  private final WritableByteChannel target;
+
+  ///////////////////
+  // CONSTRUCTORS: //
+  ///////////////////
+
+  /**
+   * Creates a ChannelOutputStream that writes to <code>channel</code> and closes it when closed.
+   * @throws RuntimeException If <code>channel</code> is a SelectableChannel in non-blocking mode.
+   */
+  public ChannelOutputStream(WritableByteChannel channel) {
+    this(checkBlocking(channel), null, null);
+  }
+  private ChannelOutputStream(WritableByteChannel channel, Path spoolFile, WritableByteChannel target) {
+    this.channel=channel;
+    this.spoolFile=spoolFile;
+    this.target=target;
+    this.buffer=borrow();
+  }
+
+  /**
+   * Creates a ChannelOutputStream that writes to a temporary file, which is transferred to <code>target</code>
+   * and deleted on <code>close()</code>; <code>target</code> is closed as well.
+   * @throws RuntimeException If <code>target</code> is a SelectableChannel in non-blocking mode.
+   */
+  public static ChannelOutputStream spooled(WritableByteChannel target) throws IOException {
+    checkBlocking(target);
+    Path file=Files.createTempFile("pdfrpt", ".pdf");
+    try {
+      FileChannel spool=FileChannel.open(
+        file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE
+      );
+      return new ChannelOutputStream(spool, file, target);
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(file);
+      throw e;
+    }
+  }
+
+  ////////////
+  // WRITE: //
+  ////////////
+
+  public @Override void write(int b) throws IOException {
+    ByteBuffer buffer=open();
+    if (!buffer.hasRemaining())
+      drain();
+    buffer.put((byte)b);
+  }
+  public @Override void write(byte[] b, int off, int len) throws IOException {
+    ByteBuffer buffer=open();
+    while (len>0) {
+      if (!buffer.hasRemaining())
+        drain();
+      int n=Math.min(len, buffer.remaining());
+      buffer.put(b, off, n);
+      off+=n;
+      len-=n;
+    }
+  }
+  /**
+   * Writes whatever is buffered to the channel; when spooling, the target only gets the document on close.
+   * Does nothing if already closed, since iText closes the stream itself and SimplePDF flushes it afterwards.
+   */
+  public @Override void flush() throws IOException {
+    if (buffer!=null)
+      drain();
+  }
+  /**
+   * Writes whatever is buffered, transfers the temporary file if spooling, and closes the channel(s).
+   * Does nothing if already closed.
+   */
+  public @Override void close() throws IOException {
+    if (buffer==null)
+      return;
+    try {
+      drain();
+      if (target!=null) {
+        FileChannel spool=(FileChannel)channel;
+        for (long pos=0, size=spool.size(); pos<size; ) {
+          long n=spool.transferTo(pos, size-pos, target);
+          if (n==0)
+            checkProgress(target);
+          pos+=n;
+        }
+      }
+    } finally {
+      giveBack(buffer);
+      buffer=null;
+      try {
+        channel.close();
+      } finally {
+        if (target!=null)
+          try {
+            target.close();
+          } finally {
+            Files.deleteIfExists(spoolFile);
+          }
+      }
+    }
+  }
+
+  ////////////////
+  // INTERNALS: //
+  ////////////////
+
+  private ByteBuffer open() throws IOException {
+    if (buffer==null)
+      throw new IOException("Stream closed");
+    return buffer;
+  }
+  private void drain() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining())
+      if (channel.write(buffer)==0)
+        checkProgress(channel);
+    buffer.clear();
+  }
+
+  private static WritableByteChannel checkBlocking(WritableByteChannel channel) {
+    if (channel instanceof SelectableChannel && !((SelectableChannel)channel).isBlocking())
+      throw new RuntimeException("Channel must be in blocking mode: "+channel);
+    return channel;
+  }
+  /** For a write that wrote nothing; only a channel switched to non-blocking mode since we got it should do that. */
+  private static void checkProgress(WritableByteChannel channel) throws IOException {
+    if (channel instanceof SelectableChannel && !((SelectableChannel)channel).isBlocking())
+      throw new IOException("Channel was switched to non-blocking mode: "+channel);
+    Thread.yield();
+  }
+
+  private static ByteBuffer borrow() {
+    ByteBuffer b=pool.poll();
+    if (b==null)
+      return ByteBuffer.allocateDirect(BUFFER_SIZE);
+    pooled.decrementAndGet();
+    b.clear();
+    return b;
+  }
+  private static void giveBack(ByteBuffer b) {
+    if (pooled.incrementAndGet()<=maxPooled)
+      pool.offer(b);
+    else
+      pooled.decrementAndGet();
+  }
+}
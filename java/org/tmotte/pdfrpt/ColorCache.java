@@ -0,0 +1,64 @@
+package org.tmotte.pdfrpt;
+import com.itextpdf.text.BaseColor;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns iText BaseColors by RGB value, so that code which makes colors out of numbers, like
+ * <code>SimplePDF.setColor(int, int, int)</code>, doesn't allocate a new BaseColor every time; a report usually
+ * has only a handful of colors. Only plain RGB colors are interned; other kinds, such as CMYK, are returned as is.
+ * Safe for concurrent use.
+ * @see #sameColor(BaseColor, BaseColor)
+ */
+public final class ColorCache {
+
+  /** Beyond this many colors, new ones are created but not remembered. */
+  public final static int MAX_SIZE=4096;
+
+  private final static ConcurrentHashMap<Integer, BaseColor> colors=new ConcurrentHashMap<Integer, BaseColor>();
+
+  private ColorCache() {}
+
+  /** Obtains the BaseColor for the given red, green &amp; blue values, 0-255; alpha is 255. */
+  public static BaseColor get(int red, int green, int blue) {
+    if (((red | green | blue) & ~0xFF)!=0)
+      return new BaseColor(red, green, blue); //...which throws the usual exception
+    return get(
+      (255 << 24) | ((red & 0xFF) << 16) | ((green & 0xFF) << 8) | (blue & 0xFF)
+    );
+  }
+  /** Obtains the BaseColor for <code>color</code>, including its alpha value. */
+  public static BaseColor get(java.awt.Color color) {
+    return get(color.getRGB());
+  }
+  /** Obtains the BaseColor for a packed ARGB value, as returned by <code>java.awt.Color.getRGB()</code>. */
+  public static BaseColor get(int argb) {
+    BaseColor c=colors.get(argb);
+    if (c==null) {
+      c=new BaseColor(argb);
+      if (colors.size()<MAX_SIZE) {
+        BaseColor prior=colors.putIfAbsent(argb, c);
+        if (prior!=null)
+          c=prior;
+      }
+    }
+    return c;
+  }
+  /**
+   * Obtains the interned equivalent of <code>color</code>, or <code>color</code> itself if it isn't a plain RGB
+   * BaseColor (or is null).
+   */
+  public static BaseColor intern(BaseColor color) {
+    if (color==null || color.getClass()!=BaseColor.class)
+      return color;
+    return get(color.getRGB());
+  }
+
+  /**
+   * Compares colors by value: true if both are null, or they are the same kind of color with the same
+   * values. Unlike <code>BaseColor.equals()</code>, an RGB color never matches a CMYK color that happens to
+   * approximate it.
+   */
+  public static boolean sameColor(BaseColor a, BaseColor b) {
+    return a==b || (a!=null && b!=null && a.getClass()==b.getClass() && a.equals(b));
+  }
+}
@@ -0,0 +1,98 @@
+package org.tmotte.pdfrpt;
+import com.itextpdf.text.pdf.BaseFont;
+import java.io.File;
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Loads fonts once and shares them. Parsing a font file with <code>FontInfo.loadFont()</code> takes milliseconds;
+ * getting it from a FontCatalog after the first time is a map lookup. The resulting BaseFont can be used by any number
+ * of FontInfo instances, reports and threads, since iText only reads from it.
+ * <p>A FontCatalog is safe for concurrent use: if several threads ask for the same font at once, only one of them
+ * loads it and the rest wait for the result. If loading fails, the exception is thrown to every thread
+ * that was waiting, and the next request tries again.</p>
+ * <p>Typical usage:</p><pre>
+   FontInfo fMain=new FontInfo(FontCatalog.getDefault().getFont("MyFont.ttf", myFontURL), 12);
+   </pre>
+ */
+public class FontCatalog {
+
+  private final static FontCatalog defaultCatalog=new FontCatalog();
+
+  /** Obtains a FontCatalog shared by everything in the JVM. */
+  public static FontCatalog getDefault() {
+    return defaultCatalog;
+  }
+
+  private final ConcurrentMap<String, FutureTask<BaseFont>> fonts=new ConcurrentHashMap<String, FutureTask<BaseFont>>();
+
+  ////////////
+  // FONTS: //
+  ////////////
+
+  /**
+   * Obtains the font loaded with <code>FontInfo.loadFont(name, url)</code>, loading it if this is the first request.
+   * @see FontInfo#loadFont(String, URL)
+   */
+  public BaseFont getFont(String name, URL url) throws Exception {
+    return get(name+"|"+url.toExternalForm(), ()->FontInfo.loadFont(name, url));
+  }
+  /** A shortcut to <code>getFont(name, file.toURI().toURL())</code>. */
+  public BaseFont getFont(String name, File file) throws Exception {
+    return getFont(name, file.getAbsoluteFile().toURI().toURL());
+  }
+  /**
+   * Obtains the font that <code>loader</code> creates, creating it if nothing has been cached under <code>key</code>.
+   * This is for fonts that don't come from a URL, for example those created with <code>BaseFont.createFont()</code>.
+   */
+  public BaseFont getFont(String key, Callable<BaseFont> loader) throws Exception {
+    return get("|"+key, loader);
+  }
+
+  /** A shortcut to <code>new FontInfo(getFont(name, url), fontSize)</code>. */
+  public FontInfo getFontInfo(String name, URL url, float fontSize) throws Exception {
+    return new FontInfo(getFont(name, url), fontSize);
+  }
+
+  /** The number of fonts currently cached (or being loaded). */
+  public int size() {
+    return fonts.size();
+  }
+  /** Forgets all cached fonts. FontInfo instances that use them are not affected. */
+  public FontCatalog clear() {
+    fonts.clear();
+    return this;
+  }
+
+  ////////////////
+  // INTERNALS: //
+  ////////////////
+
+  private BaseFont get(String key, Callable<BaseFont> loader) throws Exception {
+    FutureTask<BaseFont> task=fonts.get(key);
+    if (task==null) {
+      FutureTask<BaseFont> newTask=new FutureTask<BaseFont>(loader);
+      task=fonts.putIfAbsent(key, newTask);
+      if (task==null) {
+        task=newTask;
+        task.run();
+      }
+    }
+    try {
+      return task.get();
+    } catch (ExecutionException e) {
+      //Don't cache failures; somebody may have fixed the problem by the time we're asked again:
+      fonts.remove(key, task);
+      Throwable cause=e.getCause();
+      if (cause instanceof Exception)
+        throw (Exception)cause;
+      if (cause instanceof Error)
+        throw (Error)cause;
+      throw e;
+    }
+  }
+}
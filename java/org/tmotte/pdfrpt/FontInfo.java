@@ -2,12 +2,12 @@ package org.tmotte.pdfrpt;
 import com.itextpdf.text.pdf.BaseFont;
 import com.itextpdf.text.BaseColor;
 import java.util.List;
-import java.util.ArrayList;
 import java.net.URL;
 import java.net.URLConnection;
 import java.io.InputStream;
 import java.io.OutputStream;
-import org.tmotte.common.text.StringChunker;
+import org.tmotte.pdfrpt.jfr.FontLoadEvent;
+import org.tmotte.pdfrpt.jfr.LineBreakEvent;
 
 
 /**
@@ -29,10 +29,12 @@ public class FontInfo {
   ////////////////////
 
   protected BaseFont font;
+  private GlyphWidths widths;
   protected float fontSize=12;
   protected BaseColor color;
   protected float maxAscent=-1, maxDescent=-1, minLineSpacing=-1,
                   adjustLineSpacingB=0.5f,adjustLineSpacingT=0.5f;
+  private boolean frozen=false;
 
   ///////////////////
   // CONSTRUCTORS: //
@@ -41,6 +43,7 @@ public class FontInfo {
   /** Constructs a FontInfo object with the specified BaseFont &amp; and font size. */
   public FontInfo(BaseFont bf, float fontSize) {
     this.font=bf;
+    this.widths=GlyphWidths.get(bf);
     this.fontSize=fontSize;
     recalc();
   }
@@ -70,9 +73,14 @@ public class FontInfo {
   public FontInfo(String name, URL url) throws Exception {
     this(loadFont(name, url), 12);
   }
-  /** Constructs a FontInfo object with properties copied from <code>toCopy</code>. */
+  /**
+   * Constructs a FontInfo object with properties copied from <code>toCopy</code>. The copy is never frozen,
+   * even if <code>toCopy</code> is.
+   * @see #freeze()
+   */
   public FontInfo(FontInfo toCopy) {
     this.font    =toCopy.font;
+    this.widths  =toCopy.widths;
     this.fontSize=toCopy.fontSize;
     this.color   =toCopy.color;
     this.adjustLineSpacingT=toCopy.adjustLineSpacingT;
@@ -90,6 +98,7 @@ public class FontInfo {
    * Sets the font size.
    */
   public FontInfo setFontSize(float size) {
+    checkFrozen();
     this.fontSize=size;
     recalc();
     return this;
@@ -103,6 +112,7 @@ public class FontInfo {
    * @see #getTextLineHeight()
    */
   public FontInfo adjustLineSpacing(float top, float bottom){
+    checkFrozen();
     this.adjustLineSpacingT=top;
     this.adjustLineSpacingB=bottom;
     return this;
@@ -111,6 +121,7 @@ public class FontInfo {
    * Same as adjustLineSpacing(top, bottom) but only does the top.
    */
   public FontInfo adjustLineSpacingTop(float top){
+    checkFrozen();
     this.adjustLineSpacingT=top;
     return this;
   }
@@ -118,6 +129,7 @@ public class FontInfo {
    * Same as adjustLineSpacing(top, bottom) but only does the bottom.
    */
   public FontInfo adjustLineSpacingBottom(float bottom){
+    checkFrozen();
     this.adjustLineSpacingB=bottom;
     return this;
   }
@@ -126,20 +138,21 @@ public class FontInfo {
    * Sets the font color using RGB values. Valid range of values for each parameter is 0-255.
    */
   public FontInfo setColor(int red, int green, int blue) {
-    setColor(new BaseColor(red, green, blue));
+    setColor(ColorCache.get(red, green, blue));
     return this;
   }
   /**
    * Sets the font color using Java's standard Color object. This is passed directly to iText's BaseColor object.
    */
   public FontInfo setColor(java.awt.Color color) {
-    setColor(new BaseColor(color.getRGB()));
+    setColor(ColorCache.get(color));
     return this;
   }
   /**
    * Sets the font color using an iText BaseColor instance.
    */
   public FontInfo setColor(BaseColor bc) {
+    checkFrozen();
     this.color=bc;
     return this;
   }
@@ -147,7 +160,9 @@ public class FontInfo {
    * Sets the font.
    */
   public FontInfo setFont(BaseFont font) {
+    checkFrozen();
     this.font=font;
+    this.widths=GlyphWidths.get(font);
     recalc();
     return this;
   }
@@ -245,22 +260,47 @@ public class FontInfo {
   public FontInfo alignBaselineTo(FontInfo largerFont) {
     float lAbove=largerFont.getMaxAscent()+largerFont.getAdjustLineSpacingTop();
     float def=lAbove-maxAscent;
-    if (def>0)
+    if (def>0) {
+      checkFrozen();
       this.adjustLineSpacingT=def;
+    }
     return this;
   }
 
   /**
-   *  Obtains the point width of <code>text</code>. This just calls iText's <code>BaseFont.getWidthPoint(text)</code>.
+   * Makes this FontInfo read-only, so that it can be safely shared between threads, for example by the reports
+   * in a <code>ReportExecutor</code> batch. After this, methods that would change it throw an
+   * UnsupportedOperationException. To derive a different font, copy it with <code>new FontInfo(frozen)</code> or
+   * <code>new FontInfo(frozen, fontSize)</code> as usual.
+   * @return This instance for convenience.
+   * @see org.tmotte.pdfrpt.report.ReportExecutor
+   */
+  public FontInfo freeze() {
+    frozen=true;
+    return this;
+  }
+  /** Indicates whether <code>freeze()</code> has been invoked. */
+  public boolean isFrozen() {
+    return frozen;
+  }
+
+  /**
+   * Obtains the point width of <code>text</code>. The result is the same as iText's
+   * <code>BaseFont.getWidthPoint(text, fontSize)</code>, but for the usual font types it is computed from a table of
+   * glyph widths that is built once for each BaseFont and shared by all FontInfo instances using it.
    */
   public float getWidth(String text) {
-    return font.getWidthPoint(text, fontSize);
+    if (widths==null)
+      return font.getWidthPoint(text, fontSize);
+    return toPoints(widths.getWidth(font, text, 0, text.length()));
   }
   /**
    * Same as getWidth(String) but gets the width of a single char.
    */
   public float getWidth(char s){
-    return font.getWidthPoint(s, fontSize);
+    if (widths==null)
+      return font.getWidthPoint(s, fontSize);
+    return toPoints(widths.getWidth(font, s));
   }
 
   /**
@@ -272,38 +312,7 @@ public class FontInfo {
    * @see #getFit(String, float)
    */
   public String[] split(String str, float width) {
-    String[] result={null, null};
-    float allWidth=getWidth(str);
-    if (allWidth<width) {
-      result[0]=str;
-      return result;
-    }
-    StringChunker sc=new StringChunker(str);
-    StringBuilder sb=new StringBuilder();
-    float lineWidth=0;
-    float spaceWidth=getWidth(' ');
-    while (sc.findOrFinish(" ")) {
-      String lastPart=sc.getUpTo();
-      float lastPartWidth=getWidth(lastPart);
-      if (lineWidth+lastPartWidth>width){
-        if (sb.length()!=0) {
-          result[0]=sb.toString();
-          result[1]=lastPart+" "+sc.getRest();
-        }
-        else{
-          int brake=getBreak(str, width);
-          result[0]=str.substring(0, brake)+"-";
-          result[1]=str.substring(brake);
-        }
-        return result;
-      }
-      lineWidth+=lastPartWidth+spaceWidth;
-      sb.append(lastPart);
-      sb.append(" ");
-    }
-    //Shouldn't happen:
-    result[0]=str;
-    return result;
+    return LineBreaker.split(this, str, width);
   }
   /** An alternate to <code>split(str, width)</code>.*/
   public String[] split(float width, String str) {
@@ -317,58 +326,18 @@ public class FontInfo {
    * algorithm looks for space characters in <code>str</code> and attempts to split it at those points. If
    * a word is too large to fit on one line, <code>getFit()</code> will
    * break it in the middle and put a hyphen in between; this may not result in strictly "correct"
-   * hyphenation, however.
+   * hyphenation, however. The text is scanned only once, so even very long words (URL's, for example) are
+   * broken up in linear time.
    */
   public List<String> getFit(String str, float width) {
-    float allWidth=getWidth(str);
-    if (allWidth<width){
-      ArrayList<String> list=new ArrayList<String>(1);
-      list.add(str);
-      return list;
-    }
-    float totalHeight=0, lineHeight=getTextLineHeight();
-    List<String> lines=new ArrayList<String>(2+(int)(allWidth/width));//Best guess, I guess
-    StringChunker sc=new StringChunker(str);
-    StringBuilder sb=new StringBuilder();
-    float lineWidth=0, spaceWidth=getWidth(' ');
-    while (sc.findOrFinish(" ")) {
-      String lastPart=sc.getUpTo();
-      float lastPartWidth=getWidth(lastPart);
-
-      if (lineWidth+lastPartWidth>width && lineWidth>0){
-        //Next section won't fit on this line:
-        if (lastPartWidth > width && lineWidth+(width/4) < width) {
-          //If line is very short, we'll not break it here, we'll combine it
-          //with the big chunk and split in next section:
-          lastPart=sb.toString()+lastPart;
-          lastPartWidth=getWidth(lastPart);
-        }
-        else {
-          //Normal operation: Add the line and start a new line:
-          lines.add(sb.toString());
-          totalHeight+=lineHeight;
-        }
-        lineWidth=0;
-        sb.setLength(0);
-      }
-      if (lastPartWidth>width && lineWidth==0)
-        //Next section of text is too long for a line, so we'll force a break:
-        while (lastPartWidth>width) {
-          int brake=getBreak(lastPart, width);
-          lines.add(lastPart.substring(0,brake)+"-");
-          totalHeight+=lineHeight;
-          lastPart=lastPart.substring(brake);
-          lastPartWidth=getWidth(lastPart);
-        }
-      if (!lastPart.equals("")){
-        lineWidth+=lastPartWidth+spaceWidth;
-        sb.append(lastPart);
-        sb.append(" ");
-      }
-    }
-    if (sb.length()>0)
-      lines.add(sb.toString());
-    return lines;
+    return fit(str, width, null);
+  }
+  /**
+   * The same as <code>getFit(str, width)</code>, but adds the lines to <code>lines</code>, which is
+   * returned for convenience.
+   */
+  public List<String> getFit(String str, float width, List<String> lines) {
+    return fit(str, width, lines);
   }
   /** An alternate way to <code>getFit(s, width)</code>.*/
   public List<String> getFit(float width, String s) {
@@ -379,22 +348,41 @@ public class FontInfo {
   // PRIVATE UTILITIES: //
   ////////////////////////
 
+  private List<String> fit(String str, float width, List<String> lines) {
+    LineBreakEvent event=new LineBreakEvent();
+    event.begin();
+    int before=lines==null ?0 :lines.size();
+    lines=LineBreaker.fit(this, str, width, lines);
+    event.end();
+    if (event.shouldCommit()) {
+      event.characters=str.length();
+      event.lines=lines.size()-before;
+      event.width=width;
+      event.commit();
+    }
+    return lines;
+  }
+
+  /** The width of <code>s[start, end)</code> in text space units, as <code>BaseFont.getWidth()</code> would give it. */
+  int getUnits(String s, int start, int end) {
+    if (widths!=null)
+      return widths.getWidth(font, s, start, end);
+    return font.getWidth(start==0 && end==s.length() ?s :s.substring(start, end));
+  }
+  /** Converts text space units to points at the current font size, the same way iText does. */
+  float toPoints(int units) {
+    return units*0.001f*fontSize;
+  }
+
+  private void checkFrozen() {
+    if (frozen)
+      throw new UnsupportedOperationException("This FontInfo is frozen; make a copy to change it");
+  }
   private void recalc() {
     this.maxAscent=font.getAscentPoint(allChars, fontSize);
     this.maxDescent=font.getDescentPoint(allChars, fontSize);
     minLineSpacing=maxAscent+(-1*maxDescent);
   }
-  private int getBreak(String s, float width) {
-    float lineWidth=getWidth('-');
-    int len=s.length();
-    for (int i=0; i<len; i++) {
-      char c=s.charAt(i);
-      lineWidth+=font.getWidthPoint(c, fontSize);
-      if (lineWidth>width)
-        return i;
-    }
-    return len;
-  }
 
   ///////////////////////
   // STATIC UTILITIES: //
@@ -417,10 +405,20 @@ public class FontInfo {
    *             using TrueType fonts.
    * @param contentSize This must be the size (in bytes) of the data in the InputStream, or a larger value. It may seem silly,
    *             but iText demands it.
+   * @see FontCatalog
    */
   public static BaseFont loadFont(String name, InputStream str, int contentSize) throws Exception {
+    FontLoadEvent event=new FontLoadEvent();
+    event.begin();
     byte[] bytes=org.tmotte.common.io.Loader.loadBytes(str, contentSize);
-    return BaseFont.createFont(name, "", true, false, bytes, null);
+    BaseFont font=BaseFont.createFont(name, "", true, false, bytes, null);
+    event.end();
+    if (event.shouldCommit()) {
+      event.name=name;
+      event.bytes=bytes.length;
+      event.commit();
+    }
+    return font;
   }
   /**
    * Similar to <code>loadFont(String, InputStream, int)</code>, but obtains the InputStream and content size from
@@ -0,0 +1,161 @@
+package org.tmotte.pdfrpt;
+import com.itextpdf.text.pdf.BaseFont;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Caches the glyph widths of a BaseFont in text space units (1/1000 of the font size), so that FontInfo can
+ * measure text with array lookups instead of asking iText every time. One instance is shared by every FontInfo
+ * that uses the same BaseFont. Widths for the Basic Multilingual Plane are kept in dense 256-character pages,
+ * Latin-1 being loaded up front and the rest on demand; supplementary characters go in a small open-addressing map.
+ * <p>
+ * Widths are exactly those of <code>BaseFont.getWidth()</code>, and they are summed as integers just as iText does,
+ * so <code>getWidth(...)*0.001f*fontSize</code> gives the same result as <code>BaseFont.getWidthPoint()</code>.
+ * Only the font types whose width calculation is a simple per-character sum are supported; <code>get()</code>
+ * returns null for the rest. Characters that iText cannot measure on their own (for example, half of a surrogate pair
+ * in an encoding that is implemented by a Java Charset) are marked as such, and text containing them is measured
+ * by iText instead.
+ * </p>
+ * Safe for concurrent use.
+ */
+final class GlyphWidths {
+
+  private final static int UNKNOWN=-1;
+  private final static Map<BaseFont, GlyphWidths> cache=
+    Collections.synchronizedMap(new WeakHashMap<BaseFont, GlyphWidths>());
+
+  /**
+   * Obtains the shared GlyphWidths for <code>font</code>, or null if <code>font</code> is of a type we can't
+   * measure this way (CJK, Type3, fonts read from existing documents).
+   */
+  static GlyphWidths get(BaseFont font) {
+    int type=font.getFontType();
+    if (type!=BaseFont.FONT_TYPE_T1 && type!=BaseFont.FONT_TYPE_TT && type!=BaseFont.FONT_TYPE_TTUNI)
+      return null;
+    synchronized (cache) {
+      GlyphWidths gw=cache.get(font);
+      if (gw==null) {
+        gw=new GlyphWidths(font);
+        cache.put(font, gw);
+      }
+      return gw;
+    }
+  }
+
+  ////////////////////
+  // INSTANCE DATA: //
+  ////////////////////
+
+  //Note that we never keep a reference to the BaseFont itself, since that would keep it in the cache forever.
+  private final boolean surrogatePairs;
+  private final int[] latin;
+  private final boolean latinKnown;
+  private final AtomicReferenceArray<int[]> pages=new AtomicReferenceArray<int[]>(256);
+  private int[] supKeys=new int[16], supWidths=new int[16];
+  private int supSize=0;
+
+  private GlyphWidths(BaseFont font) {
+    //Only TrueTypeFontUnicode measures surrogate pairs as a single code point, and not when vertical/symbolic:
+    surrogatePairs=font.getFontType()==BaseFont.FONT_TYPE_TTUNI && !font.isVertical() && !font.isFontSpecific();
+    latin=loadPage(font, 0);
+    boolean known=true;
+    for (int w: latin)
+      known&=w!=UNKNOWN;
+    latinKnown=known;
+  }
+
+  ///////////////
+  // MEASURE:  //
+  ///////////////
+
+  /** The same as <code>font.getWidth(c)</code>. */
+  int getWidth(BaseFont font, char c) {
+    int w=c<256 ?latin[c] :getPaged(font, c);
+    return w==UNKNOWN ?font.getWidth(c) :w;
+  }
+
+  /** The same as <code>font.getWidth(s.substring(start, end))</code>. */
+  int getWidth(BaseFont font, String s, int start, int end) {
+    int total=0;
+    final int[] latin=this.latin;
+    for (int i=start; i<end; i++) {
+      char c=s.charAt(i);
+      //The common case, kept as tight as iText's own loop:
+      if (c<256 && latinKnown) {
+        total+=latin[c];
+        continue;
+      }
+      int w;
+      if (surrogatePairs && Character.isHighSurrogate(c) && i+1<end && Character.isLowSurrogate(s.charAt(i+1))) {
+        w=getWidth(font, Character.toCodePoint(c, s.charAt(i+1)));
+        i++;
+      }
+      else
+        w=c<256 ?latin[c] :getPaged(font, c);
+      if (w==UNKNOWN)
+        return font.getWidth(s.substring(start, end));
+      total+=w;
+    }
+    return total;
+  }
+
+  ////////////////
+  // INTERNALS: //
+  ////////////////
+
+  private int getPaged(BaseFont font, char c) {
+    int[] page=pages.get(c>>>8);
+    if (page==null)
+      page=loadPage(font, c>>>8);
+    return page[c & 0xff];
+  }
+  private int[] loadPage(BaseFont font, int pageIndex) {
+    int[] page=new int[256];
+    int base=pageIndex<<8;
+    for (int i=0; i<256; i++)
+      try {
+        page[i]=font.getWidth((char)(base+i));
+      } catch (RuntimeException e) {
+        page[i]=UNKNOWN;
+      }
+    //If another thread got here first, use theirs; the values are the same either way:
+    if (!pages.compareAndSet(pageIndex, null, page))
+      page=pages.get(pageIndex);
+    return page;
+  }
+
+  private synchronized int getWidth(BaseFont font, int codePoint) {
+    int mask=supKeys.length-1;
+    for (int i=codePoint & mask; ; i=(i+1) & mask) {
+      int key=supKeys[i];
+      if (key==codePoint)
+        return supWidths[i];
+      if (key==0)
+        break;
+    }
+    int width=font.getWidth(codePoint);
+    if ((supSize+1)*2>supKeys.length)
+      rehash();
+    put(codePoint, width);
+    return width;
+  }
+  private void put(int codePoint, int width) {
+    int mask=supKeys.length-1, i=codePoint & mask;
+    while (supKeys[i]!=0)
+      i=(i+1) & mask;
+    supKeys[i]=codePoint;
+    supWidths[i]=width;
+    supSize++;
+  }
+  private void rehash() {
+    int[] oldKeys=supKeys, oldWidths=supWidths;
+    supKeys=new int[oldKeys.length*2];
+    supWidths=new int[oldKeys.length*2];
+    supSize=0;
+    for (int i=0; i<oldKeys.length; i++)
+      if (oldKeys[i]!=0)
+        put(oldKeys[i], oldWidths[i]);
+  }
+}
@@ -0,0 +1,119 @@
+package org.tmotte.pdfrpt;
+import com.itextpdf.text.Image;
+import java.io.File;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Keeps the images loaded for a document, so that each picture is decoded once and, more importantly, embedded in
+ * the PDF once: iText writes an image's data the first time it is drawn and after that only refers to it, but only
+ * when it's given the same Image (or a copy made with <code>Image.getInstance(Image)</code>). A picture loaded twice is
+ * embedded twice.
+ * <p>Images are cached by URL, by file or by a hash of their data. Every request returns a new copy of the
+ * cached Image, so that it can be scaled &amp; positioned independently of the others, while still being embedded
+ * only once. The cache is bounded: when it is full, the least recently used image is forgotten, and will be loaded
+ * (and embedded) again if it is needed again.</p>
+ * <p>Every SimplePDF has an ImageCache, available from <code>SimplePDF.getImageCache()</code>. Safe for concurrent use.</p>
+ * @see SimplePDF#getImageCache()
+ */
+public class ImageCache {
+
+  /** The maximum size used by <code>SimplePDF.getImageCache()</code>. */
+  public final static int DEFAULT_MAX_SIZE=64;
+
+  private final Map<String, Image> images;
+  private int hits=0, misses=0;
+
+  /** Creates an ImageCache that holds at most <code>maxSize</code> images. */
+  public ImageCache(final int maxSize) {
+    images=new LinkedHashMap<String, Image>(16, 0.75f, true) {
+      private static final long serialVersionUID=1L;
+      protected @Override boolean removeEldestEntry(Map.Entry<String, Image> eldest) {
+        return size()>maxSize;
+      }
+    };
+  }
+
+  /////////////
+  // IMAGES: //
+  /////////////
+
+  /**
+   * Obtains a copy of the image at <code>url</code>, loading it with <code>SimplePDF.loadImage(url)</code> if it
+   * isn't cached.
+   */
+  public Image getImage(final URL url) throws Exception {
+    return get("url:"+url.toExternalForm(), ()->SimplePDF.loadImage(url));
+  }
+  /** A shortcut to <code>getImage(file.toURI().toURL())</code>. */
+  public Image getImage(File file) throws Exception {
+    return getImage(file.getAbsoluteFile().toURI().toURL());
+  }
+  /**
+   * Obtains a copy of the image encoded in <code>data</code>, loading it if no image with exactly the same data is
+   * cached. Useful for images that come from a database and the like.
+   */
+  public Image getImage(final byte[] data) throws Exception {
+    StringBuilder key=new StringBuilder("sha-256:");
+    for (byte b: MessageDigest.getInstance("SHA-256").digest(data))
+      key.append(Character.forDigit((b>>4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+    return get(key.toString(), ()->SimplePDF.loadImage(data));
+  }
+
+  ////////////////
+  // STATUS:    //
+  ////////////////
+
+  /** The number of images currently cached. */
+  public synchronized int size() {
+    return images.size();
+  }
+  /**
+   * The number of requests answered from the cache so far, including those that loaded an image only to find that
+   * another thread had cached it first.
+   */
+  public synchronized int getHits() {
+    return hits;
+  }
+  /** The number of requests that loaded the image that was cached, so far. */
+  public synchronized int getMisses() {
+    return misses;
+  }
+  /** Forgets all cached images. */
+  public synchronized ImageCache clear() {
+    images.clear();
+    return this;
+  }
+
+  ////////////////
+  // INTERNALS: //
+  ////////////////
+
+  private Image get(String key, Callable<Image> loader) throws Exception {
+    Image image;
+    synchronized (this) {
+      image=images.get(key);
+      if (image!=null)
+        hits++;
+    }
+    if (image==null) {
+      //Loading can be slow, so we don't hold the lock for it; if two threads load the same image, the first one wins,
+      //and the others count as hits since they get its image:
+      Image loaded=loader.call();
+      synchronized (this) {
+        image=images.get(key);
+        if (image==null) {
+          images.put(key, loaded);
+          image=loaded;
+          misses++;
+        }
+        else
+          hits++;
+      }
+    }
+    return Image.getInstance(image);
+  }
+}
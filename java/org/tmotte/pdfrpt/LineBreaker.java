@@ -0,0 +1,164 @@
+package org.tmotte.pdfrpt;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The line-breaking engine behind <code>FontInfo.getFit()</code> and <code>FontInfo.split()</code>. Text is scanned
+ * once, word by word, keeping running widths; words and forced breaks are tracked as offsets into the original
+ * String, so that the only Strings created are the resulting lines.
+ * <p>
+ * The output is exactly that of the original StringChunker-based algorithm: words are separated by single spaces
+ * (so consecutive spaces make empty words), every line but a forced break keeps its trailing space, and widths are
+ * added up in the same order, with the same float arithmetic, so that lines break at precisely the same places.
+ * The one intentional difference is that a character too wide to fit on a line by itself is put on a line anyway,
+ * where the old algorithm would loop forever.
+ * </p>
+ */
+final class LineBreaker {
+
+  private LineBreaker() {}
+
+  ////////////
+  // FIT:   //
+  ////////////
+
+  /**
+   * Implements <code>FontInfo.getFit()</code>.
+   * @param lines The lines are added to this; if null, a new List is created.
+   */
+  static List<String> fit(FontInfo fi, String str, float width, List<String> lines) {
+    final int len=str.length();
+    float allWidth=fi.toPoints(fi.getUnits(str, 0, len));
+    if (allWidth<width){
+      if (lines==null)
+        lines=new ArrayList<String>(1);
+      lines.add(str);
+      return lines;
+    }
+    if (lines==null)
+      lines=new ArrayList<String>(2+(int)(allWidth/width));//Best guess, I guess
+
+    StringBuilder sb=new StringBuilder();
+    float lineWidth=0, spaceWidth=fi.getWidth(' ');
+    for (int start=0; start<len; ) {
+      int end=str.indexOf(' ', start);
+      if (end==-1)
+        end=len;
+
+      //The current piece of text is piece[ps, pe); usually that's the word in str, but see below:
+      String piece=str;
+      int ps=start, pe=end;
+      int pieceUnits=fi.getUnits(str, ps, pe);
+      float pieceWidth=fi.toPoints(pieceUnits);
+
+      if (lineWidth+pieceWidth>width && lineWidth>0){
+        //Next section won't fit on this line:
+        if (pieceWidth > width && lineWidth+(width/4) < width) {
+          //If line is very short, we'll not break it here, we'll combine it
+          //with the big chunk and split in next section:
+          piece=sb.append(str, start, end).toString();
+          ps=0;
+          pe=piece.length();
+          pieceUnits=fi.getUnits(piece, ps, pe);
+          pieceWidth=fi.toPoints(pieceUnits);
+        }
+        else
+          //Normal operation: Add the line and start a new line:
+          lines.add(sb.toString());
+        lineWidth=0;
+        sb.setLength(0);
+      }
+      if (pieceWidth>width && lineWidth==0)
+        //Next section of text is too long for a line, so we'll force a break:
+        while (pieceWidth>width && ps<pe) {
+          int brake=getBreak(fi, piece, ps, pe, width);
+          if (brake==ps)
+            brake+=Character.charCount(piece.codePointAt(ps));
+          lines.add(hyphenate(piece, ps, brake));
+          //Widths add up, except where iText measures a surrogate pair as one character and we just split it:
+          if (brake<pe && Character.isHighSurrogate(piece.charAt(brake-1)) && Character.isLowSurrogate(piece.charAt(brake)))
+            pieceUnits=fi.getUnits(piece, brake, pe);
+          else
+            pieceUnits-=fi.getUnits(piece, ps, brake);
+          pieceWidth=fi.toPoints(pieceUnits);
+          ps=brake;
+        }
+      if (ps<pe){
+        lineWidth+=pieceWidth+spaceWidth;
+        sb.append(piece, ps, pe);
+        sb.append(' ');
+      }
+      start=end+1;
+    }
+    if (sb.length()>0)
+      lines.add(sb.toString());
+    return lines;
+  }
+
+  ////////////
+  // SPLIT: //
+  ////////////
+
+  /** Implements <code>FontInfo.split()</code>. */
+  static String[] split(FontInfo fi, String str, float width) {
+    String[] result={null, null};
+    final int len=str.length();
+    float allWidth=fi.toPoints(fi.getUnits(str, 0, len));
+    if (allWidth<width) {
+      result[0]=str;
+      return result;
+    }
+    float lineWidth=0;
+    float spaceWidth=fi.getWidth(' ');
+    for (int start=0; start<len; ) {
+      int end=str.indexOf(' ', start);
+      if (end==-1)
+        end=len;
+      float partWidth=fi.toPoints(fi.getUnits(str, start, end));
+      if (lineWidth+partWidth>width){
+        if (start>0) {
+          //Everything before this word, with its trailing space; the rest always starts with this word and a space:
+          result[0]=str.substring(0, start);
+          result[1]=end<len ?str.substring(start) :str.substring(start)+" ";
+        }
+        else{
+          int brake=getBreak(fi, str, 0, len, width);
+          result[0]=hyphenate(str, 0, brake);
+          result[1]=str.substring(brake);
+        }
+        return result;
+      }
+      lineWidth+=partWidth+spaceWidth;
+      start=end+1;
+    }
+    //Shouldn't happen:
+    result[0]=str;
+    return result;
+  }
+
+  ////////////////
+  // INTERNALS: //
+  ////////////////
+
+  /**
+   * Finds how much of <code>s[start, end)</code> fits in <code>width</code> along with a hyphen,
+   * adding up the widths of individual chars.
+   * @return The index of the first char that doesn't fit, or <code>end</code>.
+   */
+  private static int getBreak(FontInfo fi, String s, int start, int end, float width) {
+    float lineWidth=fi.getWidth('-');
+    for (int i=start; i<end; i++) {
+      lineWidth+=fi.getWidth(s.charAt(i));
+      if (lineWidth>width)
+        return i;
+    }
+    return end;
+  }
+
+  private static String hyphenate(String s, int start, int end) {
+    char[] chars=new char[end-start+1];
+    s.getChars(start, end, chars, 0);
+    chars[chars.length-1]='-';
+    return new String(chars);
+  }
+}
@@ -0,0 +1,127 @@
+package org.tmotte.pdfrpt;
+import java.util.Arrays;
+
+/**
+ * Counts what a document cost to produce: how much was drawn, how many bytes each page took, and where the
+ * time went. Give one to <code>SimplePDF.setRenderStats()</code> before drawing and read it after
+ * <code>close()</code>; everything is a plain counter, so it is cheap enough to leave on in production, and
+ * <code>toString()</code> gives a one-line summary suitable for a log.
+ * <p>Times are in nanoseconds:</p>
+ * <ul>
+ *   <li>Layout: time spent in Report's <code>addVertical(item, pageCount, footer, header)</code>,
+ *       <code>addAllVertical()</code> &amp; <code>addRows()</code>, which includes creating the ReportItems in the
+ *       latter two cases (and fetching rows in the last), but not printing pages while streaming.</li>
+ *   <li>Print: time spent in <code>Report.print()</code>.</li>
+ *   <li>Close: time spent in <code>SimplePDF.close()</code>, which writes fonts, page totals &amp; the rest of
+ *       the document, and flushes &amp; closes the OutputStream.</li>
+ * </ul>
+ * Not safe for concurrent use; use one per document.
+ * @see SimplePDF#setRenderStats(RenderStats)
+ */
+public class RenderStats {
+
+  int textDraws, pathOps, images, templates, stateChanges;
+  private long[] pageBytes=new long[16];
+  private int pages;
+  private long lastPageEnd, totalBytes, layoutNanos, printNanos, closeNanos;
+
+  ///////////////
+  // DRAWING:  //
+  ///////////////
+
+  /** The number of strings drawn. */
+  public int getTextDraws() {
+    return textDraws;
+  }
+  /** The number of lines, rectangles &amp; rounded rectangles drawn, outlined or filled. */
+  public int getPathOps() {
+    return pathOps;
+  }
+  /** The number of images drawn. */
+  public int getImages() {
+    return images;
+  }
+  /** The number of templates placed, including page total placeholders. */
+  public int getTemplates() {
+    return templates;
+  }
+  /** The number of operators written to change font, color or line width, or to save &amp; restore state. */
+  public int getStateChanges() {
+    return stateChanges;
+  }
+
+  /////////////
+  // OUTPUT: //
+  /////////////
+
+  /** The number of pages written. */
+  public int getPageCount() {
+    return pages;
+  }
+  /**
+   * The number of bytes written while page <code>page</code> (starting from 1) was finished, i.e. its content
+   * plus any images first used on it.
+   */
+  public long getPageBytes(int page) {
+    if (page<1 || page>pages)
+      throw new RuntimeException("No such page: "+page);
+    return pageBytes[page-1];
+  }
+  /** The size of the whole document, once closed. */
+  public long getTotalBytes() {
+    return totalBytes;
+  }
+
+  ////////////
+  // TIME:  //
+  ////////////
+
+  /** Time spent laying out Reports, in nanoseconds. */
+  public long getLayoutNanos() {
+    return layoutNanos;
+  }
+  /** Time spent printing Reports, in nanoseconds. */
+  public long getPrintNanos() {
+    return printNanos;
+  }
+  /** Time spent closing the document, in nanoseconds. */
+  public long getCloseNanos() {
+    return closeNanos;
+  }
+  /** Used by Report to add layout time. */
+  public RenderStats addLayoutNanos(long nanos) {
+    layoutNanos+=nanos;
+    return this;
+  }
+  /** Used by Report to add print time. */
+  public RenderStats addPrintNanos(long nanos) {
+    printNanos+=nanos;
+    return this;
+  }
+
+  /** A one-line summary, e.g. for logging. */
+  public @Override String toString() {
+    return "pages="+pages+" bytes="+totalBytes
+      +" text="+textDraws+" paths="+pathOps+" images="+images+" templates="+templates+" state="+stateChanges
+      +" layoutMs="+(layoutNanos/1000000)+" printMs="+(printNanos/1000000)+" closeMs="+(closeNanos/1000000);
+  }
+
+  ////////////////
+  // INTERNALS: //
+  ////////////////
+
+  /** Sets where counting of bytes starts, for a document that is already partly written. */
+  void startBytes(long written) {
+    lastPageEnd=written;
+  }
+  void endPage(long written) {
+    if (pages==pageBytes.length)
+      pageBytes=Arrays.copyOf(pageBytes, pages*2);
+    pageBytes[pages++]=written-lastPageEnd;
+    lastPageEnd=written;
+  }
+  void close(long written, long nanos) {
+    totalBytes=written;
+    closeNanos+=nanos;
+  }
+}
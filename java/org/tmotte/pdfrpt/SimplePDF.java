@@ -8,20 +8,31 @@ import com.itextpdf.text.PageSize;
 import com.itextpdf.text.BaseColor;
 import com.itextpdf.text.pdf.BaseFont;
 import com.itextpdf.text.pdf.PdfContentByte;
+import com.itextpdf.text.pdf.PdfPageEventHelper;
+import com.itextpdf.text.pdf.PdfTemplate;
 import com.itextpdf.text.pdf.PdfWriter;
 import com.itextpdf.text.Rectangle;
 import java.net.URL;
 import java.net.URLConnection;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import javax.imageio.ImageIO;
+import javax.imageio.stream.MemoryCacheImageInputStream;
 import org.tmotte.common.text.StringChunker;
+import org.tmotte.pdfrpt.jfr.DocumentCloseEvent;
 
 /**
  * <p>
@@ -41,18 +52,48 @@ import org.tmotte.common.text.StringChunker;
 public class SimplePDF implements java.io.Closeable {
 
   /**
-   * Creates an iText Image from the data in <code>inStream</code>.
+   * Creates an iText Image from the data in <code>inStream</code>, and closes <code>inStream</code>.
+   * @see #loadImage(byte[])
    * @see #draw(Image)
    */
   public static Image loadImage(InputStream inStream) throws Exception {
-    java.awt.Image rawImage;
+    byte[] data;
     try {
-      rawImage=ImageIO.read(inStream);
+      ByteArrayOutputStream bytes=new ByteArrayOutputStream(Math.max(inStream.available(), 8192));
+      byte[] buffer=new byte[8192];
+      for (int read; (read=inStream.read(buffer))!=-1; )
+        bytes.write(buffer, 0, read);
+      data=bytes.toByteArray();
     } finally {
       inStream.close();
     }
-    Image x=Image.getInstance(rawImage, null);
-    return x;
+    return loadImage(data);
+  }
+  /**
+   * Creates an iText Image from the encoded image in <code>data</code>. JPEG, PNG and GIF data is given to iText
+   * as is: a JPEG is embedded in the PDF without being decoded &amp; recompressed at all, and PNG &amp; GIF are
+   * read by iText directly. Anything else, or anything iText can't handle, is decoded with ImageIO (without
+   * ImageIO's disk cache).
+   * @see #draw(Image)
+   */
+  public static Image loadImage(byte[] data) throws Exception {
+    if (isJPEG(data) || isPNG(data) || isGIF(data))
+      try {
+        return Image.getInstance(data);
+      } catch (Exception e) {
+        //Fall back to ImageIO, which copes with more variations
+      }
+    java.awt.Image rawImage=ImageIO.read(new MemoryCacheImageInputStream(new ByteArrayInputStream(data)));
+    if (rawImage==null)
+      throw new RuntimeException("Unrecognized image format");
+    return Image.getInstance(rawImage, null);
+  }
+  /**
+   * A shortcut to <code>loadImage(Files.readAllBytes(path))</code>.
+   * @see #loadImage(byte[])
+   */
+  public static Image loadImage(Path path) throws Exception {
+    return loadImage(Files.readAllBytes(path));
   }
   /**
    * Shortcut to <code>loadImage(url.openStream())</code>;
@@ -61,30 +102,78 @@ public class SimplePDF implements java.io.Closeable {
     return loadImage(url.openStream());
   }
 
+  private static boolean isJPEG(byte[] d) {
+    return d.length>3 && (d[0] & 0xff)==0xff && (d[1] & 0xff)==0xd8 && (d[2] & 0xff)==0xff;
+  }
+  private static boolean isPNG(byte[] d) {
+    return d.length>8 && (d[0] & 0xff)==0x89 && d[1]=='P' && d[2]=='N' && d[3]=='G'
+      && d[4]=='\r' && d[5]=='\n' && d[6]==0x1a && d[7]=='\n';
+  }
+  private static boolean isGIF(byte[] d) {
+    return d.length>6 && d[0]=='G' && d[1]=='I' && d[2]=='F' && d[3]=='8';
+  }
+
   ////////////////////
   // INSTANCE DATA: //
   ////////////////////
 
   private OutputStream outStream;
   private Document document;
+  private PdfWriter writer;
   private PdfContentByte renderer;
 
   //Non-state-saved data:
   private float currX, currY;
   private PageInfo pageInfo;
 
-  //Instance data that requires saveState:
-  private float lineWidth=1, lineWidthPushed=-1;
-  private BaseColor color, colorPushed;
-  private FontInfo fontInfo, fontInfoPushed;
-  protected boolean stateSaved=false;
+  //Instance data that requires saveState, and the state stack, kept in parallel arrays that only grow
+  //when it gets deeper than ever before:
+  private float lineWidth=1;
+  private BaseColor color;
+  private FontInfo fontInfo;
+  //Replaces the stateSaved flag, which is now stateDepth>0; subclasses should read it, not change it:
+  protected int stateDepth=0;
+  private FontInfo[] savedFontInfo=new FontInfo[8];
+  private BaseColor[] savedColor=new BaseColor[8];
+  private float[] savedLineWidth=new float[8];
+
+  //When saveState writes q/Q, whether each level has an open q, and what the PDF's state was when it was written:
+  private boolean stateOperators=false;
+  private boolean[] savedQ=new boolean[8];
+  private BaseFont[] savedLastFont=new BaseFont[8];
+  private float[] savedLastFontSize=new float[8], savedLastLineWidth=new float[8];
+  private BaseColor[] savedLastFill=new BaseColor[8], savedLastStroke=new BaseColor[8];
 
-  //Instance data that must be checked before drawing:
+  //Instance data that must be checked before drawing; colors are compared by value, and fill (for text
+  //& filled shapes) is tracked apart from stroke (for lines & outlines) so that only the one needed is set:
   private BaseFont lastFont;
   private float lastFontSize;
-  private BaseColor lastColor;
+  private BaseColor lastFill, lastStroke;
   private float lastLineWidth;
 
+  //An open text object (BT), kept open across consecutive text draws, and the start of its current line,
+  //rounded as iText writes it:
+  private boolean inText=false;
+  private float textX, textY;
+
+  //Page state while drawing a template:
+  private PdfContentByte pageRenderer;
+  private float pageX, pageY, pageFontSize, pageLineWidth;
+  private BaseFont pageFont;
+  private BaseColor pageFill, pageStroke;
+  private Map<Object, Object> templateCache;
+
+  //Created on demand:
+  private ImageCache imageCache;
+
+  //Optional statistics, and the number of pages they have been told about:
+  private RenderStats stats;
+  private int pagesRecorded;
+
+  //Page totals that are filled in when the document closes:
+  private List<PageTotal> pageTotals=new ArrayList<PageTotal>();
+  private int pageTotalDigits=4, pagesEnded=0;
+
   //////////////////////
   //  INITIALIZATION  //
   //////////////////////
@@ -99,9 +188,35 @@ public class SimplePDF implements java.io.Closeable {
    * @see com.itextpdf.text.PageSize
    */
   public SimplePDF(OutputStream outStream, PageInfo pageInfo) throws Exception{
+    this(outStream, pageInfo, new WriterInfo());
+  }
+  /**
+   * Works the same as <code>SimplePDF(outStream, pageInfo)</code>, but also applies the compression &amp; PDF version
+   * settings in <code>writerInfo</code>.
+   * @see WriterInfo
+   */
+  public SimplePDF(OutputStream outStream, PageInfo pageInfo, WriterInfo writerInfo) throws Exception{
     setFontInfo(new FontInfo().setColor(BaseColor.BLACK));
     createDocument(new PageInfo(pageInfo));
-    setOutputStream(outStream);
+    setOutputStream(outStream, writerInfo);
+  }
+  /**
+   * Starts a new PDF, to be written to <code>channel</code>; iText's many small writes are gathered in a pooled
+   * direct buffer &amp; written in large chunks. The channel is closed by <code>SimplePDF.close()</code>, and
+   * must be in blocking mode.
+   * For the finished document to be sent in one piece, use
+   * <code>SimplePDF(ChannelOutputStream.spooled(channel), pageInfo)</code> instead.
+   * @see ChannelOutputStream
+   */
+  public SimplePDF(WritableByteChannel channel, PageInfo pageInfo) throws Exception{
+    this(channel, pageInfo, new WriterInfo());
+  }
+  /**
+   * Works the same as <code>SimplePDF(channel, pageInfo)</code>, but also applies the settings in
+   * <code>writerInfo</code>.
+   */
+  public SimplePDF(WritableByteChannel channel, PageInfo pageInfo, WriterInfo writerInfo) throws Exception{
+    this(new ChannelOutputStream(channel), pageInfo, writerInfo);
   }
   /**
    * Shortcut to <code>SimplePDF(outStream, new PageInfo(pageSize))</code>.
@@ -118,12 +233,16 @@ public class SimplePDF implements java.io.Closeable {
 
 
 
-  private void setOutputStream(OutputStream outStream) throws Exception {
+  private void setOutputStream(OutputStream outStream, WriterInfo writerInfo) throws Exception {
     this.outStream=outStream;
-    PdfWriter writer=PdfWriter.getInstance(document, outStream);
+    writer=PdfWriter.getInstance(document, outStream);
+    writerInfo.apply(writer);
+    writer.setPageEvent(new PageEvents());
     document.open();
     renderer=writer.getDirectContent();
     renderer.setFontAndSize(fontInfo.getFont(), fontInfo.getFontSize());
+    lastFont=fontInfo.getFont();
+    lastFontSize=fontInfo.getFontSize();
   }
   private void createDocument(PageInfo pageInfo) throws Exception{
     this.pageInfo=pageInfo;
@@ -140,31 +259,53 @@ public class SimplePDF implements java.io.Closeable {
   /**
    * Saves all of the state concerning font, color, and line width of drawn lines; does not
    * save margin settings or X-Y coordinate position. Use <code>restoreState()</code> to reset back
-   * to the prior state.
+   * to the prior state. States are saved on a stack, so saveState/restoreState pairs can be nested
+   * to any depth.
    * @see #restoreState()
    * @see #isStateSaved()
-   * @throws RuntimeException If saveState has already been called without a following call to restoreState.
+   * @see #setStateOperators(boolean)
    */
   public SimplePDF saveState() {
-    if (stateSaved)
-      throw new RuntimeException("State stack only goes one level deep; you must invoke restoreState() before invoking saveState() a second time.");
-    stateSaved=true;
-    fontInfoPushed=fontInfo;
-    lineWidthPushed=lineWidth;
-    colorPushed=color;
+    if (stateDepth==savedLineWidth.length)
+      growStateStack();
+    int i=stateDepth++;
+    savedFontInfo[i]=fontInfo;
+    savedLineWidth[i]=lineWidth;
+    savedColor[i]=color;
+    if (stateOperators && renderer!=null) {
+      endText();
+      renderer.saveState();
+      countStateChange();
+      savedQ[i]=true;
+      savedLastFont[i]=lastFont;
+      savedLastFontSize[i]=lastFontSize;
+      savedLastFill[i]=lastFill;
+      savedLastStroke[i]=lastStroke;
+      savedLastLineWidth[i]=lastLineWidth;
+    }
     return this;
   }
   /**
    * Companion method to <code>saveState()</code>; returns font, color and line width
-   * settings to the state previously saved by <code>saveState()</code>.
+   * settings to the state saved by the most recent unmatched call to <code>saveState()</code>.
    * @see #saveState()
    * @throws RuntimeException If no call to saveState was made.
    */
   public SimplePDF restoreState() {
-    stateSaved=false;
-    setFontInfo(fontInfoPushed);
-    lineWidth=lineWidthPushed;
-    color=colorPushed;
+    if (stateDepth==0)
+      throw new RuntimeException("No state to restore; you must invoke saveState() before invoking restoreState().");
+    int i=--stateDepth;
+    setFontInfo(savedFontInfo[i]);
+    lineWidth=savedLineWidth[i];
+    color=savedColor[i];
+    savedFontInfo[i]=null;
+    savedColor[i]=null;
+    if (savedQ[i]) {
+      endText();
+      renderer.restoreState();
+      countStateChange();
+      restoreLast(i);
+    }
     return this;
   }
   /**
@@ -172,9 +313,65 @@ public class SimplePDF implements java.io.Closeable {
    * i.e. <code>saveState()</code> has been invoked without
    * a following call to <code>restoreState()</code>.
    * @see #saveState()
+   * @see #getStateDepth()
    */
   public boolean isStateSaved() {
-    return stateSaved;
+    return stateDepth>0;
+  }
+  /** Obtains the number of calls to <code>saveState()</code> that have not yet been matched by <code>restoreState()</code>. */
+  public int getStateDepth() {
+    return stateDepth;
+  }
+  /**
+   * Makes <code>saveState()</code> &amp; <code>restoreState()</code> also write PDF's own save &amp; restore operators,
+   * <code>q</code> &amp; <code>Q</code>, so that on restore the document goes back to the saved color, line width &amp;
+   * font by itself, rather than SimplePDF setting them again when next needed. This pays off when nested items
+   * change a lot of state, such as line art in assorted colors &amp; widths; but since <code>q</code> &amp;
+   * <code>Q</code> can't go inside a text object, it also keeps consecutive text from sharing one. Off by default.
+   * <p>PDF doesn't allow a <code>q</code> to stay open past the end of a page or template, so any that are
+   * open are closed at that point; restoring those states afterwards works as if this were off.</p>
+   */
+  public SimplePDF setStateOperators(boolean on) {
+    this.stateOperators=on;
+    return this;
+  }
+  /** Indicates whether <code>saveState()</code> writes <code>q</code> &amp; <code>Q</code> operators. */
+  public boolean isStateOperators() {
+    return stateOperators;
+  }
+
+  private void growStateStack() {
+    int size=savedLineWidth.length*2;
+    savedFontInfo=Arrays.copyOf(savedFontInfo, size);
+    savedColor=Arrays.copyOf(savedColor, size);
+    savedLineWidth=Arrays.copyOf(savedLineWidth, size);
+    savedQ=Arrays.copyOf(savedQ, size);
+    savedLastFont=Arrays.copyOf(savedLastFont, size);
+    savedLastFontSize=Arrays.copyOf(savedLastFontSize, size);
+    savedLastFill=Arrays.copyOf(savedLastFill, size);
+    savedLastStroke=Arrays.copyOf(savedLastStroke, size);
+    savedLastLineWidth=Arrays.copyOf(savedLastLineWidth, size);
+  }
+  /** Writes a Q for every open q, innermost first, leaving the PDF's state as it was before the outermost. */
+  private void closeStateOperators() {
+    for (int i=stateDepth-1; i>=0; i--)
+      if (savedQ[i]) {
+        endText();
+        renderer.restoreState();
+        countStateChange();
+        restoreLast(i);
+      }
+  }
+  private void restoreLast(int i) {
+    savedQ[i]=false;
+    lastFont=savedLastFont[i];
+    lastFontSize=savedLastFontSize[i];
+    lastFill=savedLastFill[i];
+    lastStroke=savedLastStroke[i];
+    lastLineWidth=savedLastLineWidth[i];
+    savedLastFont[i]=null;
+    savedLastFill[i]=null;
+    savedLastStroke[i]=null;
   }
 
   ////////////////
@@ -188,14 +385,48 @@ public class SimplePDF implements java.io.Closeable {
   }
   /**
    * Obtains the internal iText renderer object. This object contains advanced rendering methods for graphics that
-   * are not directly supported by SimplePDF.
+   * are not directly supported by SimplePDF. SimplePDF keeps a text object open across consecutive text draws;
+   * this closes it, so the renderer is ready for anything.
    * @see #getITextX()
    * @see #getITextY()
    */
   public PdfContentByte getInternalRenderer() {
+    endText();
     return renderer;
   }
 
+  ////////////////
+  // STATISTICS //
+  ////////////////
+
+  /**
+   * Starts collecting statistics in <code>stats</code>, which can be read after <code>close()</code>; best done
+   * right after creating the SimplePDF, since earlier drawing isn't counted. Null turns collection off.
+   * @see RenderStats
+   */
+  public SimplePDF setRenderStats(RenderStats stats) {
+    this.stats=stats;
+    if (stats!=null) {
+      stats.startBytes(writer.getOs().getCounter());
+      pagesRecorded=pagesEnded;
+    }
+    return this;
+  }
+  /** Obtains the RenderStats given to <code>setRenderStats()</code>, or null if there are none. */
+  public RenderStats getRenderStats() {
+    return stats;
+  }
+  /** Obtains the number of bytes written to the OutputStream so far; iText writes each page when the next one starts. */
+  public long getBytesWritten() {
+    return writer.getOs().getCounter();
+  }
+  private void recordPages() {
+    if (stats!=null && pagesEnded>pagesRecorded) {
+      stats.endPage(writer.getOs().getCounter());
+      pagesRecorded=pagesEnded;
+    }
+  }
+
   ////////////////////////////
   // INSTANCE FONT METHODS: //
   ////////////////////////////
@@ -343,6 +574,17 @@ public class SimplePDF implements java.io.Closeable {
   public float getITextY() {
     return currY;
   }
+  /**
+   * Sets the X &amp; Y coordinates as seen by iText, i.e. the values later returned by <code>getITextX()</code> and
+   * <code>getITextY()</code>; margins are not taken into account.
+   * @see #getITextX()
+   * @see #getITextY()
+   */
+  public SimplePDF setITextXY(float x, float y) {
+    currX=x;
+    currY=y;
+    return this;
+  }
 
   ////////////
   // COLOR: //
@@ -357,16 +599,20 @@ public class SimplePDF implements java.io.Closeable {
     return this;
   }
   /**
-   * A shortcut to <code>setColor(new BaseColor(red, green, blue))</code>;
+   * A shortcut to <code>setColor(ColorCache.get(red, green, blue))</code>;
    */
   public SimplePDF setColor(int red, int green, int blue) {
-    return setColor(new BaseColor(red, green, blue));
+    return setColor(ColorCache.get(red, green, blue));
   }
   /**
    * Sets the color using Java's standard Color object. This is passed directly to iText's BaseColor object.
    */
   public SimplePDF setColor(java.awt.Color color) {
-    return setColor(new BaseColor(color.getRGB()));
+    return setColor(ColorCache.get(color));
+  }
+  /** Obtains the current color, or null if none has been set. */
+  public BaseColor getColor() {
+    return color;
   }
 
   ///////////////////////////////
@@ -395,7 +641,7 @@ public class SimplePDF implements java.io.Closeable {
    * @see #setColor(BaseColor)
    */
   public SimplePDF drawLine(float xDistance, float yDistance) {
-    checkDraw();
+    checkDraw(false);
     renderer.moveTo(currX, currY);
     renderer.lineTo(currX+xDistance, currY-yDistance);
     renderer.stroke();
@@ -417,7 +663,7 @@ public class SimplePDF implements java.io.Closeable {
    * @see #fillRect(float, float)
    */
   public SimplePDF drawRect(float width, float height){
-    checkDraw();
+    checkDraw(false);
     float half=lineWidth/2;
     renderer.rectangle(currX+half, currY-half, width-lineWidth, -(height-lineWidth));
     renderer.stroke();
@@ -459,7 +705,7 @@ public class SimplePDF implements java.io.Closeable {
       float offsetTL, float offsetTR, float offsetBR, float offsetBL,
       boolean fill
     ){
-    checkDraw();
+    checkDraw(fill);
     float x=currX, y=currY;
     if (!fill){
       float half=lineWidth/2;
@@ -501,7 +747,7 @@ public class SimplePDF implements java.io.Closeable {
    * @see #drawRect(float, float)
    */
   public SimplePDF fillRect(float width, float height){
-    checkDraw();
+    checkDraw(true);
     renderer.rectangle(currX, currY, width, -height);
     renderer.fill();
     return this;
@@ -511,12 +757,34 @@ public class SimplePDF implements java.io.Closeable {
   // IMAGE DRAWING METHODS: //
   ////////////////////////////
 
+  /**
+   * Obtains the ImageCache for this document, creating one that holds up to
+   * <code>ImageCache.DEFAULT_MAX_SIZE</code> images if none has been set.
+   * @see #setImageCache(ImageCache)
+   */
+  public ImageCache getImageCache() {
+    if (imageCache==null)
+      imageCache=new ImageCache(ImageCache.DEFAULT_MAX_SIZE);
+    return imageCache;
+  }
+  /**
+   * Sets the ImageCache for this document, e.g. to use a different maximum size. Since cached images are not
+   * tied to a particular document, one ImageCache can also be shared by several documents, each of which will
+   * embed each image once.
+   */
+  public SimplePDF setImageCache(ImageCache imageCache) {
+    this.imageCache=imageCache;
+    return this;
+  }
   /**
    * Draws <code>image</code> at the current X,Y coordinate position, according
    * the size determined by <code>image.getScaledHeight()</code> and <code>image.getScaledWidth()</code>
    * @see #loadImage(InputStream)
    */
   public SimplePDF draw(Image image) throws Exception {
+    endText();
+    if (stats!=null)
+      stats.images++;
     float imgHeight=(image.getScaledHeight()),
           imgWidth=(image.getScaledWidth());
     renderer.addImage(image, imgWidth, 0, 0, imgHeight, currX, currY-imgHeight);
@@ -559,13 +827,30 @@ public class SimplePDF implements java.io.Closeable {
   }
   private SimplePDF draw(String text, float x, float y) {
     checkFont();
-    renderer.beginText();
-    renderer.setTextMatrix(x, y-(fontInfo.getMaxAscent()+fontInfo.getAdjustLineSpacingTop()));
+    //Consecutive text draws share one text object, each moving relative to the last one; the text object is
+    //closed by endText() before anything else is drawn:
+    float tx=round(x), ty=round(y-(fontInfo.getMaxAscent()+fontInfo.getAdjustLineSpacingTop()));
+    if (!inText) {
+      renderer.beginText();
+      renderer.setTextMatrix(tx, ty);
+      inText=true;
+    }
+    else
+      renderer.moveText(tx-textX, ty-textY);
+    textX=tx;
+    textY=ty;
     renderer.showText(text);
-    //renderer.stroke(); Suddenly illegal
-    renderer.endText();
+    if (stats!=null)
+      stats.textDraws++;
     return this;
   }
+  /**
+   * Rounds to 2 decimal places the way iText writes coordinates, so that relative moves add up to exactly
+   * the position an absolute one would have given.
+   */
+  private static float round(float f) {
+    return f<0 ?-round(-f) :(float)(Math.floor(f*100.0+0.5)/100.0);
+  }
   /**
    * Moves the Y coordinate downwards by the amount of <code>getFontInfo().getTextLineHeight()</code>;
    * does not affect the X coordinate.
@@ -584,6 +869,180 @@ public class SimplePDF implements java.io.Closeable {
   }
 
 
+  //////////////////
+  // PAGE TOTALS: //
+  //////////////////
+
+  /**
+   * Draws a placeholder for the total number of pages in the document to the right of the current X,Y coordinate
+   * position. The placeholder is an iText PdfTemplate that is <code>getPageTotalWidth()</code> wide; it is filled in
+   * using the current font and color when <code>close()</code> is invoked, so the page count need not be known
+   * in advance. Does not change the current X,Y coordinates.
+   * @see #getPageTotalWidth()
+   * @see #setPageTotalDigits(int)
+   * @see org.tmotte.pdfrpt.report.PageCount#setDeferred(boolean)
+   */
+  public SimplePDF drawPageTotal() {
+    endText();
+    float ascent=fontInfo.getMaxAscent(),
+          descent=fontInfo.getMaxDescent();
+    PdfTemplate template=renderer.createTemplate(getPageTotalWidth(), ascent-descent);
+    BaseColor c=fontInfo.getColor();
+    pageTotals.add(
+      new PageTotal(template, fontInfo.getFont(), fontInfo.getFontSize(), c!=null ?c :color, descent)
+    );
+    float baseline=currY-(ascent+fontInfo.getAdjustLineSpacingTop());
+    renderer.addTemplate(template, currX, baseline+descent);
+    if (stats!=null)
+      stats.templates++;
+    return this;
+  }
+  /**
+   * Obtains the width reserved by <code>drawPageTotal()</code> for the current font, i.e. the width
+   * of as many zeroes as specified by <code>setPageTotalDigits()</code>.
+   * @see #drawPageTotal()
+   */
+  public float getPageTotalWidth() {
+    float zero=fontInfo.getWidth('0');
+    return zero*pageTotalDigits;
+  }
+  /**
+   * Sets the number of digits that <code>drawPageTotal()</code> reserves space for. The default is 4;
+   * page totals with more digits will be clipped.
+   * @see #drawPageTotal()
+   */
+  public SimplePDF setPageTotalDigits(int digits) {
+    this.pageTotalDigits=digits;
+    return this;
+  }
+
+  private static class PageTotal {
+    final PdfTemplate template;
+    final BaseFont font;
+    final float fontSize, descent;
+    final BaseColor color;
+    PageTotal(PdfTemplate template, BaseFont font, float fontSize, BaseColor color, float descent) {
+      this.template=template;
+      this.font=font;
+      this.fontSize=fontSize;
+      this.color=color;
+      this.descent=descent;
+    }
+    void fill(String total) {
+      template.beginText();
+      template.setFontAndSize(font, fontSize);
+      if (color!=null)
+        template.setColorFill(color);
+      template.setTextMatrix(0, -descent);
+      template.showText(total);
+      template.endText();
+    }
+  }
+  private class PageEvents extends PdfPageEventHelper {
+    public @Override void onEndPage(PdfWriter writer, Document document) {
+      pagesEnded++;
+    }
+    public @Override void onCloseDocument(PdfWriter writer, Document document) {
+      recordPages();
+      String total=String.valueOf(pagesEnded);
+      for (PageTotal pt: pageTotals)
+        pt.fill(total);
+      pageTotals.clear();
+    }
+  }
+
+  ////////////////
+  // TEMPLATES: //
+  ////////////////
+
+  /**
+   * Starts drawing into a new iText PdfTemplate (a PDF "form XObject") instead of the current page; everything drawn
+   * until <code>endTemplate()</code> goes into the template, which can then be placed on any number of pages with
+   * <code>draw(PdfTemplate)</code> while its content is only written to the document once.
+   * <p>The X,Y coordinates are set to the template's origin, which is the point that will be placed at the
+   * current X,Y coordinates by <code>draw(PdfTemplate)</code>; as with the rest of SimplePDF, drawing extends right
+   * &amp; down from there. The template is clipped to the size of a page in every direction from its origin.</p>
+   * @throws RuntimeException If a template is already being drawn.
+   * @see #endTemplate()
+   */
+  public PdfTemplate beginTemplate() {
+    if (pageRenderer!=null)
+      throw new RuntimeException("Templates cannot be nested; you must invoke endTemplate() before invoking beginTemplate() again.");
+    closeStateOperators();
+    endText();
+    float w=pageInfo.getTotalWidth(), h=pageInfo.getTotalHeight();
+    PdfTemplate template=renderer.createTemplate(w, h);
+    template.setBoundingBox(new Rectangle(-w, -h, w, h));
+    pageRenderer=renderer;
+    pageX=currX;
+    pageY=currY;
+    pageFont=lastFont;
+    pageFontSize=lastFontSize;
+    pageFill=lastFill;
+    pageStroke=lastStroke;
+    pageLineWidth=lastLineWidth;
+    renderer=template;
+    currX=0;
+    currY=0;
+    //The template starts with whatever graphics state is current wherever it is placed, so we can't assume any:
+    lastFont=null;
+    lastFontSize=-1;
+    lastFill=null;
+    lastStroke=null;
+    lastLineWidth=-1;
+    return template;
+  }
+  /**
+   * Finishes the template started by <code>beginTemplate()</code>, and returns to drawing on the current page at
+   * the X,Y coordinates in effect before it.
+   * @see #beginTemplate()
+   */
+  public PdfTemplate endTemplate() {
+    if (pageRenderer==null)
+      throw new RuntimeException("No template has been started with beginTemplate()");
+    closeStateOperators();
+    endText();
+    PdfTemplate template=(PdfTemplate)renderer;
+    renderer=pageRenderer;
+    pageRenderer=null;
+    currX=pageX;
+    currY=pageY;
+    lastFont=pageFont;
+    lastFontSize=pageFontSize;
+    lastFill=pageFill;
+    lastStroke=pageStroke;
+    lastLineWidth=pageLineWidth;
+    return template;
+  }
+  /**
+   * Indicates whether a template is being drawn, i.e. <code>beginTemplate()</code> has been invoked
+   * without a following call to <code>endTemplate()</code>.
+   */
+  public boolean isDrawingTemplate() {
+    return pageRenderer!=null;
+  }
+  /**
+   * Draws <code>template</code> with its origin at the current X,Y coordinates.
+   * @see #beginTemplate()
+   */
+  public SimplePDF draw(PdfTemplate template) {
+    endText();
+    renderer.addTemplate(template, currX, currY);
+    if (stats!=null)
+      stats.templates++;
+    return this;
+  }
+  /**
+   * Obtains a Map for things drawn once per document, such as the templates drawn by
+   * <code>org.tmotte.pdfrpt.report.PTemplate</code>, keyed by whatever drew them. It belongs to this SimplePDF and
+   * is discarded by <code>close()</code>, and like the rest of SimplePDF it is not thread-safe.
+   */
+  public Map<Object, Object> getTemplateCache() {
+    if (templateCache==null)
+      templateCache=new HashMap<>();
+    return templateCache;
+  }
+
   /////////////
   // PAGING: //
   /////////////
@@ -594,12 +1053,16 @@ public class SimplePDF implements java.io.Closeable {
    * @see #setXY(float, float)
    */
   public SimplePDF newPage() {
+    closeStateOperators();
+    endText();
     document.newPage();
+    recordPages();
     //This is necessary because of an iText (and/or PDF) bug/feature. The font, line & color information
     //is lost when we switch pages.
     lastFontSize=-1;
     lastFont=null;
-    lastColor=BaseColor.BLACK;
+    lastFill=BaseColor.BLACK;
+    lastStroke=BaseColor.BLACK;
     lastLineWidth=-1;
     return this;
   }
@@ -609,21 +1072,49 @@ public class SimplePDF implements java.io.Closeable {
   ////////////
 
   /**
-   * Closes the internal iText Document object and the OutputStream.
+   * Closes the internal iText Document object and the OutputStream. Placeholders drawn by
+   * <code>drawPageTotal()</code> are filled in at this point.
+   * @see #drawPageTotal()
    */
   public @Override void close() throws java.io.IOException {
-    if (document!=null)
+    long start=stats!=null ?System.nanoTime() :0;
+    DocumentCloseEvent event=new DocumentCloseEvent();
+    event.begin();
+    if (document!=null) {
+      closeStateOperators();
+      endText();
       document.close();
+    }
     document=null;
+    templateCache=null;
     if (outStream!=null) {
       outStream.flush();
       outStream.close();
       outStream=null;
+      if (stats!=null)
+        stats.close(writer.getOs().getCounter(), System.nanoTime()-start);
+      event.end();
+      if (event.shouldCommit()) {
+        event.pages=pagesEnded;
+        event.bytes=writer.getOs().getCounter();
+        event.commit();
+      }
     }
     outStream=null;
   }
 
 
+  /** Closes the text object left open by text drawing, if any; paths, images &amp; templates can't go in one. */
+  private void endText() {
+    if (inText) {
+      renderer.endText();
+      inText=false;
+    }
+  }
+  private void countStateChange() {
+    if (stats!=null)
+      stats.stateChanges++;
+  }
   private void checkFont() {
     if (renderer==null)
       return;
@@ -631,33 +1122,44 @@ public class SimplePDF implements java.io.Closeable {
     float b=fontInfo.getFontSize();
     if (lastFont!=a || lastFontSize!=b){
       renderer.setFontAndSize(a, b);
+      countStateChange();
       lastFont=a;
       lastFontSize=b;
     }
+    //Text is filled, not stroked:
     BaseColor c=fontInfo.getColor();
-    if (c!=null && lastColor!=c){
+    if (c==null)
+      c=color;
+    if (c!=null && !ColorCache.sameColor(lastFill, c)){
       renderer.setColorFill(c);
-      renderer.setColorStroke(c);
-      lastColor=c;
-    }
-    else
-    if (c==null && color!=null && lastColor!=color){
-      renderer.setColorFill(color);
-      renderer.setColorStroke(color);
-      lastColor=color;
+      countStateChange();
+      lastFill=c;
     }
   }
-  private void checkDraw() {
+  private void checkDraw(boolean fill) {
     if (renderer==null)
       return;
-    if (color!=null && lastColor!=color){
-      renderer.setColorFill(color);
-      renderer.setColorStroke(color);
-      lastColor=color;
+    if (stats!=null)
+      stats.pathOps++;
+    endText();
+    if (fill) {
+      if (color!=null && !ColorCache.sameColor(lastFill, color)){
+        renderer.setColorFill(color);
+        countStateChange();
+        lastFill=color;
+      }
     }
-    if (lastLineWidth!=lineWidth){
-      renderer.setLineWidth(lineWidth);
-      lastLineWidth=lineWidth;
+    else {
+      if (color!=null && !ColorCache.sameColor(lastStroke, color)){
+        renderer.setColorStroke(color);
+        countStateChange();
+        lastStroke=color;
+      }
+      if (lastLineWidth!=lineWidth){
+        renderer.setLineWidth(lineWidth);
+        countStateChange();
+        lastLineWidth=lineWidth;
+      }
     }
   }
 
@@ -0,0 +1,99 @@
+package org.tmotte.pdfrpt;
+import com.itextpdf.text.pdf.PdfStream;
+import com.itextpdf.text.pdf.PdfWriter;
+
+/**
+ * Contains settings for the iText PdfWriter that SimplePDF creates, i.e. how the PDF file itself is written:
+ * how hard to compress, and which PDF version to produce. The defaults are iText's.
+ * <p>Compression is a tradeoff between CPU and file size. <code>fastest()</code> suits documents that are
+ * generated on request and thrown away, while <code>smallest()</code> suits documents that are archived;
+ * run <code>TestBench TestLoad.makeReport.compression</code> to see the difference for a typical report.</p>
+ * @see SimplePDF#SimplePDF(java.io.OutputStream, PageInfo, WriterInfo)
+ */
+public class WriterInfo {
+
+  /** Use with <code>setCompressionLevel()</code>: iText's default, which is the same as zlib's default (6). */
+  public final static int DEFAULT_COMPRESSION=PdfStream.DEFAULT_COMPRESSION;
+  /** Use with <code>setCompressionLevel()</code>: Streams are not compressed at all. */
+  public final static int NO_COMPRESSION=PdfStream.NO_COMPRESSION;
+  /** Use with <code>setCompressionLevel()</code>: The fastest compression, which still does most of the work. */
+  public final static int BEST_SPEED=1;
+  /** Use with <code>setCompressionLevel()</code>: The slowest compression, and the smallest output. */
+  public final static int BEST_COMPRESSION=PdfStream.BEST_COMPRESSION;
+
+  int compressionLevel=DEFAULT_COMPRESSION;
+  boolean fullCompression=false;
+  char pdfVersion=0;
+
+  /** Creates a WriterInfo with iText's default settings. */
+  public WriterInfo() {}
+  /** Creates a new instance of WriterInfo that has the same properties as <code>other</code>. */
+  public WriterInfo(WriterInfo other) {
+    this.compressionLevel=other.compressionLevel;
+    this.fullCompression=other.fullCompression;
+    this.pdfVersion=other.pdfVersion;
+  }
+
+  /** A shortcut to <code>new WriterInfo().setCompressionLevel(BEST_SPEED)</code>. */
+  public static WriterInfo fastest() {
+    return new WriterInfo().setCompressionLevel(BEST_SPEED);
+  }
+  /** A shortcut to <code>new WriterInfo().setCompressionLevel(BEST_COMPRESSION).setFullCompression(true)</code>. */
+  public static WriterInfo smallest() {
+    return new WriterInfo().setCompressionLevel(BEST_COMPRESSION).setFullCompression(true);
+  }
+
+  /**
+   * Sets the compression level for page content, fonts and images (other than JPEG images, which are already
+   * compressed): 0 to 9, or <code>DEFAULT_COMPRESSION</code>.
+   * @see com.itextpdf.text.pdf.PdfWriter#setCompressionLevel(int)
+   */
+  public WriterInfo setCompressionLevel(int level) {
+    if (level!=DEFAULT_COMPRESSION && (level<NO_COMPRESSION || level>BEST_COMPRESSION))
+      throw new RuntimeException("Illegal value for compression level: "+level);
+    this.compressionLevel=level;
+    return this;
+  }
+  /** Obtains the compression level. */
+  public int getCompressionLevel() {
+    return compressionLevel;
+  }
+  /**
+   * Turns on "full compression", where the PDF's objects and cross-reference table are compressed as well,
+   * as streams. This requires PDF 1.5 or later, which will be used regardless of <code>setPdfVersion()</code>.
+   * @see com.itextpdf.text.pdf.PdfWriter#setFullCompression()
+   */
+  public WriterInfo setFullCompression(boolean full) {
+    this.fullCompression=full;
+    return this;
+  }
+  /** Indicates whether full compression is on. */
+  public boolean isFullCompression() {
+    return fullCompression;
+  }
+  /**
+   * Sets the PDF version, e.g. <code>PdfWriter.VERSION_1_7</code>; by default, iText uses 1.4, or later if
+   * something in the document requires it.
+   * @see com.itextpdf.text.pdf.PdfWriter#setPdfVersion(char)
+   */
+  public WriterInfo setPdfVersion(char version) {
+    this.pdfVersion=version;
+    return this;
+  }
+  /** Obtains the PDF version, or 0 if it has not been set. */
+  public char getPdfVersion() {
+    return pdfVersion;
+  }
+
+  /**
+   * Applies these settings to <code>writer</code>, which must not have been opened yet; SimplePDF does this
+   * itself, so this is only needed for writers made some other way, e.g. a PdfCopy.
+   */
+  public void apply(PdfWriter writer) throws Exception {
+    if (pdfVersion!=0)
+      writer.setPdfVersion(pdfVersion);
+    if (fullCompression)
+      writer.setFullCompression();
+    writer.setCompressionLevel(compressionLevel);
+  }
+}
@@ -0,0 +1,23 @@
+package org.tmotte.pdfrpt.jfr;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Emitted by <code>SimplePDF.close()</code>, which finishes the document and closes its OutputStream. */
+@Name("org.tmotte.pdfrpt.DocumentClose")
+@Label("Document Close")
+@Description("Writing the last page, fonts and cross-reference table, and closing the output")
+@Category("pdfrpt")
+@Enabled(false)
+@StackTrace(false)
+public final class DocumentCloseEvent extends Event {
+  @Label("Pages")
+  public int pages;
+  @Label("Document Size") @DataAmount
+  public long bytes;
+}
@@ -0,0 +1,23 @@
+package org.tmotte.pdfrpt.jfr;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Emitted by <code>FontInfo.loadFont()</code> for each font file parsed. */
+@Name("org.tmotte.pdfrpt.FontLoad")
+@Label("Font Load")
+@Description("Reading and parsing a font file")
+@Category("pdfrpt")
+@Enabled(false)
+@StackTrace(false)
+public final class FontLoadEvent extends Event {
+  @Label("Font Name")
+  public String name;
+  @Label("Size") @DataAmount
+  public long bytes;
+}
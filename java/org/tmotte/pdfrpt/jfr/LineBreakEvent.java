@@ -0,0 +1,27 @@
+package org.tmotte.pdfrpt.jfr;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emitted by <code>FontInfo.getFit()</code> for each text broken into lines. There can be a great many of these, so
+ * it is usually best enabled with a threshold.
+ */
+@Name("org.tmotte.pdfrpt.LineBreak")
+@Label("Line Break")
+@Description("Breaking text into lines that fit a width")
+@Category("pdfrpt")
+@Enabled(false)
+@StackTrace(false)
+public final class LineBreakEvent extends Event {
+  @Label("Characters")
+  public int characters;
+  @Label("Lines")
+  public int lines;
+  @Label("Width")
+  public float width;
+}
@@ -0,0 +1,30 @@
+package org.tmotte.pdfrpt.jfr;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emitted by <code>Report.addVertical(item, pageCount, footer, header)</code> when <code>item</code> doesn't fit and
+ * a new page is started; in streaming mode, that includes printing the finished page.
+ */
+@Name("org.tmotte.pdfrpt.PageBreak")
+@Label("Page Break")
+@Description("Finishing a Report page and starting the next")
+@Category("pdfrpt")
+@Enabled(false)
+@StackTrace(false)
+public final class PageBreakEvent extends Event {
+  @Label("Page")
+  @Description("The number of the page being started, counting from 1 for the Report")
+  public int page;
+  @Label("Items")
+  @Description("The number of ReportItems on the finished page")
+  public int items;
+  @Label("Item Height")
+  @Description("The height of the item that didn't fit")
+  public float itemHeight;
+}
@@ -0,0 +1,27 @@
+package org.tmotte.pdfrpt.jfr;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Emitted by <code>Report.print()</code> for each page printed. */
+@Name("org.tmotte.pdfrpt.PagePrint")
+@Label("Page Print")
+@Description("Printing one page of a Report")
+@Category("pdfrpt")
+@Enabled(false)
+@StackTrace(false)
+public final class PagePrintEvent extends Event {
+  @Label("Page")
+  @Description("The number of the page, counting from 1 for the Report")
+  public int page;
+  @Label("Items")
+  public int items;
+  @Label("Bytes Written") @DataAmount
+  @Description("Bytes written to the document while printing; iText writes a page out when the next one starts")
+  public long bytes;
+}
@@ -0,0 +1,280 @@
+package org.tmotte.pdfrpt.report;
+import com.itextpdf.text.BaseColor;
+import com.itextpdf.text.Image;
+import java.util.Arrays;
+import org.tmotte.pdfrpt.FontInfo;
+import org.tmotte.pdfrpt.SimplePDF;
+
+/**
+ * A Report (or any other ReportItem) flattened into a list of drawing operations at absolute positions, so that it
+ * can be printed by a single loop instead of walking the PGroup tree, repositioning the PDF and saving &amp; restoring
+ * state for every item. Operations are kept in parallel arrays: an opcode per operation, its coordinates &amp;
+ * dimensions in a <code>float[]</code>, and the objects it needs (fonts, text, colors, images) in an <code>Object[]</code>.
+ * <p>
+ * Compiling does the layout arithmetic once, exactly as <code>print()</code> would, so rendering a DisplayList
+ * produces the same PDF content as printing the ReportItem it came from. A DisplayList can be rendered any number of
+ * times, for example to produce the same layout in several documents.</p>
+ * <p>
+ * ReportItems take part in compiling via <code>ReportItem.compile()</code>. Those that don't override it, and text with
+ * page numbers (which change every time they are printed), are kept as they are and simply printed when the DisplayList
+ * is rendered.</p>
+ * Example:<pre>
+    DisplayList list=DisplayList.compile(report, pdf);
+    list.render(pdf);
+   </pre>
+ * @see ReportItem#compile(DisplayList, SimplePDF)
+ */
+public class DisplayList {
+
+  private final static byte
+    OP_TEXT=1,
+    OP_LINE=2,
+    OP_RECT=3,
+    OP_FILL_RECT=4,
+    OP_ROUNDED_RECT=5,
+    OP_FILL_ROUNDED_RECT=6,
+    OP_IMAGE=7,
+    OP_ITEM=8,
+    OP_LIVE=9;
+  //The number of floats & objects for each opcode, so that ops can be skipped:
+  private final static byte[]
+    FLOATS= {0, 2, 5, 5, 5, 9, 9, 2, 2, 2},
+    OBJECTS={0, 2, 1, 1, 1, 1, 1, 1, 1, 1};
+
+  private byte[] ops=new byte[64];
+  private float[] floats=new float[256];
+  private Object[] objects=new Object[128];
+  private int opCount=0, floatCount=0, objectCount=0;
+
+  //////////////
+  // COMPILE: //
+  //////////////
+
+  /**
+   * Compiles <code>item</code> as it would be printed by <code>item.print(pdf)</code> at <code>pdf</code>'s current
+   * X,Y coordinates. Nothing is drawn, and <code>pdf</code>'s coordinates are left as they were.
+   */
+  public static DisplayList compile(ReportItem item, SimplePDF pdf) throws Exception {
+    DisplayList list=new DisplayList();
+    float x=pdf.getITextX(), y=pdf.getITextY();
+    try {
+      item.compile(list, pdf);
+    } finally {
+      pdf.setITextXY(x, y);
+    }
+    list.trim();
+    return list;
+  }
+
+  /** The number of operations in this DisplayList. */
+  public int size() {
+    return opCount;
+  }
+
+  /////////////////
+  // OPERATIONS: //
+  /////////////////
+
+  /*
+   * These are for ReportItem.compile(). All coordinates are iText coordinates, i.e. as per SimplePDF.getITextX()
+   * and SimplePDF.getITextY().
+   */
+
+  /**
+   * Adds <code>text</code>, drawn in <code>font</code> as per <code>SimplePDF.draw(String)</code>.
+   * @see SimplePDF#draw(String)
+   */
+  public DisplayList addText(float x, float y, FontInfo font, String text) {
+    add(OP_TEXT, x, y);
+    addObject(font);
+    addObject(text);
+    return this;
+  }
+  /**
+   * Adds a line as per <code>SimplePDF.drawLine()</code>.
+   * @param lineWidth The line width, or 0 to use the SimplePDF's line width.
+   * @param color The color, or null to use the SimplePDF's color.
+   * @see SimplePDF#drawLine(float, float)
+   */
+  public DisplayList addLine(float x, float y, float xDistance, float yDistance, float lineWidth, BaseColor color) {
+    add(OP_LINE, x, y);
+    addFloat(xDistance);
+    addFloat(yDistance);
+    addFloat(lineWidth);
+    addObject(color);
+    return this;
+  }
+  /**
+   * Adds a rectangle as per <code>SimplePDF.drawRect()</code> or, if <code>fill</code> is true,
+   * <code>SimplePDF.fillRect()</code>. Line width &amp; color work as for <code>addLine()</code>.
+   * @see #addLine(float, float, float, float, float, BaseColor)
+   */
+  public DisplayList addRect(float x, float y, float width, float height, boolean fill, float lineWidth, BaseColor color) {
+    add(fill ?OP_FILL_RECT :OP_RECT, x, y);
+    addFloat(width);
+    addFloat(height);
+    addFloat(lineWidth);
+    addObject(color);
+    return this;
+  }
+  /**
+   * Adds a rectangle as per <code>SimplePDF.drawRectRounded()</code> or, if <code>fill</code> is true,
+   * <code>SimplePDF.fillRectRounded()</code>. Line width &amp; color work as for <code>addLine()</code>.
+   * @see #addLine(float, float, float, float, float, BaseColor)
+   */
+  public DisplayList addRoundedRect(
+      float x, float y, float width, float height,
+      float offsetTL, float offsetTR, float offsetBR, float offsetBL,
+      boolean fill, float lineWidth, BaseColor color
+    ) {
+    add(fill ?OP_FILL_ROUNDED_RECT :OP_ROUNDED_RECT, x, y);
+    addFloat(width);
+    addFloat(height);
+    addFloat(offsetTL);
+    addFloat(offsetTR);
+    addFloat(offsetBR);
+    addFloat(offsetBL);
+    addFloat(lineWidth);
+    addObject(color);
+    return this;
+  }
+  /**
+   * Adds <code>image</code> as per <code>SimplePDF.draw(Image)</code>.
+   * @see SimplePDF#draw(Image)
+   */
+  public DisplayList addImage(float x, float y, Image image) {
+    add(OP_IMAGE, x, y);
+    addObject(image);
+    return this;
+  }
+  /**
+   * Adds <code>item</code> as is; it will be printed with <code>item.print()</code> when this DisplayList is rendered,
+   * with the SimplePDF's X,Y coordinates set to <code>x,y</code>.
+   */
+  public DisplayList addItem(float x, float y, ReportItem item) {
+    add(OP_ITEM, x, y);
+    addObject(item);
+    return this;
+  }
+  /**
+   * Works the same as <code>addItem()</code>, but for items whose output changes every time they are printed,
+   * such as text with page numbers. These are never rendered into a PTemplate's template.
+   * @see PTemplate
+   */
+  public DisplayList addLive(float x, float y, ReportItem item) {
+    add(OP_LIVE, x, y);
+    addObject(item);
+    return this;
+  }
+
+  /////////////
+  // RENDER: //
+  /////////////
+
+  /**
+   * Draws everything in this DisplayList to <code>pdf</code>. The font, color and line width of <code>pdf</code>
+   * are used wherever the original ReportItems would have used them, and are left as they were, as are
+   * <code>pdf</code>'s X,Y coordinates.
+   */
+  public void render(SimplePDF pdf) throws Exception {
+    render(pdf, true, true, 0, 0);
+  }
+  /** Renders everything except what was added with <code>addLive()</code>. */
+  void renderFixed(SimplePDF pdf) throws Exception {
+    render(pdf, true, false, 0, 0);
+  }
+  /** Renders only what was added with <code>addLive()</code>, moved by <code>dx,dy</code>. */
+  void renderLive(SimplePDF pdf, float dx, float dy) throws Exception {
+    render(pdf, false, true, dx, dy);
+  }
+
+  private void render(SimplePDF pdf, boolean fixed, boolean live, float dx, float dy) throws Exception {
+    final byte[] ops=this.ops;
+    final float[] f=this.floats;
+    final Object[] o=this.objects;
+    final FontInfo baseFont=pdf.getFontInfo();
+    final BaseColor baseColor=pdf.getColor();
+    final float baseLineWidth=pdf.getLineWidth(),
+                startX=pdf.getITextX(),
+                startY=pdf.getITextY();
+    FontInfo font=baseFont;
+    try {
+      for (int i=0, fi=0, oi=0; i<opCount; i++) {
+        byte op=ops[i];
+        if (op==OP_LIVE ?!live :!fixed) {
+          fi+=FLOATS[op];
+          oi+=OBJECTS[op];
+          continue;
+        }
+        pdf.setITextXY(f[fi++]+dx, f[fi++]+dy);
+        if (op==OP_TEXT) {
+          FontInfo textFont=(FontInfo)o[oi++];
+          if (textFont!=font)
+            pdf.setFontInfo(font=textFont);
+          pdf.draw((String)o[oi++]);
+        }
+        else
+        if (op==OP_IMAGE)
+          pdf.draw((Image)o[oi++]);
+        else
+        if (op==OP_ITEM || op==OP_LIVE) {
+          if (font!=baseFont)
+            pdf.setFontInfo(font=baseFont);
+          ((ReportItem)o[oi++]).print(pdf);
+        }
+        else {
+          //Lines & rectangles: the line width comes last, after the dimensions:
+          int lw=fi+(op==OP_LINE || op==OP_RECT || op==OP_FILL_RECT ?2 :6);
+          BaseColor color=(BaseColor)o[oi++];
+          pdf.setLineWidth(f[lw]!=0 ?f[lw] :baseLineWidth)
+             .setColor(color!=null ?color :baseColor);
+          if (op==OP_LINE)
+            pdf.drawLine(f[fi], f[fi+1]);
+          else
+          if (op==OP_RECT)
+            pdf.drawRect(f[fi], f[fi+1]);
+          else
+          if (op==OP_FILL_RECT)
+            pdf.fillRect(f[fi], f[fi+1]);
+          else
+          if (op==OP_ROUNDED_RECT)
+            pdf.drawRectRounded(f[fi], f[fi+1], f[fi+2], f[fi+3], f[fi+4], f[fi+5]);
+          else
+            pdf.fillRectRounded(f[fi], f[fi+1], f[fi+2], f[fi+3], f[fi+4], f[fi+5]);
+          pdf.setLineWidth(baseLineWidth).setColor(baseColor);
+          fi=lw+1;
+        }
+      }
+    } finally {
+      pdf.setFontInfo(baseFont)
+         .setITextXY(startX, startY);
+    }
+  }
+
+  ////////////////
+  // INTERNALS: //
+  ////////////////
+
+  private void add(byte op, float x, float y) {
+    if (opCount==ops.length)
+      ops=Arrays.copyOf(ops, opCount*2+16);
+    ops[opCount++]=op;
+    addFloat(x);
+    addFloat(y);
+  }
+  private void addFloat(float f) {
+    if (floatCount==floats.length)
+      floats=Arrays.copyOf(floats, floatCount*2+16);
+    floats[floatCount++]=f;
+  }
+  private void addObject(Object o) {
+    if (objectCount==objects.length)
+      objects=Arrays.copyOf(objects, objectCount*2+16);
+    objects[objectCount++]=o;
+  }
+  private void trim() {
+    ops=Arrays.copyOf(ops, opCount);
+    floats=Arrays.copyOf(floats, floatCount);
+    objects=Arrays.copyOf(objects, objectCount);
+  }
+}
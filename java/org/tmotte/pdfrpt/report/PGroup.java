@@ -2,7 +2,7 @@ package org.tmotte.pdfrpt.report;
 import org.tmotte.pdfrpt.SimplePDF;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.RandomAccess;
 
 /**
  * <p>
@@ -79,13 +79,19 @@ public class PGroup extends ReportItem {
 
   protected List<ReportItem> items;
   protected ReportItem lastAdded;
+  /** The sum of <code>estimateRetainedBytes()</code> for items, as they were when first added. */
+  protected long itemBytes=0;
 
   ///////////////////
   // CONSTRUCTORS: //
   ///////////////////
 
+  /**
+   * Creates an empty PGroup. Items are kept in an ArrayList, which grows as needed; for a PGroup that will only
+   * ever hold a few items, <code>PGroup(ReportItem...)</code> is slightly more compact.
+   */
   public PGroup() {
-    items=new LinkedList<ReportItem>();
+    items=new ArrayList<ReportItem>();
   }
   /**
    * Creates a new PGroup and adds <code>reportItems</code> to it. Assumes that
@@ -134,6 +140,10 @@ public class PGroup extends ReportItem {
    */
   public PGroup add(ReportItem item){
     items.add(item);
+    if (item.countedIn!=this) {
+      itemBytes+=item.estimateRetainedBytes();
+      item.countedIn=this;
+    }
     lastAdded=item;
     expandToFit(item);
     return this;
@@ -288,15 +298,62 @@ public class PGroup extends ReportItem {
    * </p>
    */
   public void print(SimplePDF pdf) throws Exception {
+    float absLeft=pdf.getX(),
+          absTop=pdf.getY();
+    if (items instanceof RandomAccess)
+      //Avoids creating an Iterator for every PGroup on every page:
+      for (int i=0, size=items.size(); i<size; i++) {
+        ReportItem p=items.get(i);
+        pdf.setXY(absLeft+p.getLeft(), absTop+p.getTop());
+        p.print(pdf);
+      }
+    else
+      for (ReportItem p: items) {
+        pdf.setXY(absLeft+p.getLeft(), absTop+p.getTop());
+        p.print(pdf);
+      }
+    pdf.setXY(absLeft, absTop);
+  }
+
+  /**
+   * Compiles all of the items in this PGroup, positioning <code>pdf</code> for each one exactly as
+   * <code>print()</code> does.
+   * @see ReportItem#compile(DisplayList, SimplePDF)
+   */
+  public @Override void compile(DisplayList list, SimplePDF pdf) throws Exception {
     float absLeft=pdf.getX(),
           absTop=pdf.getY();
     for (ReportItem p: items) {
       pdf.setXY(absLeft+p.getLeft(), absTop+p.getTop());
-      p.print(pdf);
+      p.compile(list, pdf);
     }
     pdf.setXY(absLeft, absTop);
   }
 
+  /////////////
+  // MEMORY: //
+  /////////////
+
+  /**
+   * Counts this PGroup, its List, and its items. The items are counted as each one is added, so this is cheap
+   * even for a large PGroup; but an item changed after being added, e.g. a PGroup given more items, is still
+   * counted as it was. An item added more than once, such as a footer on every page, is counted in full only the
+   * first time, and after that only as another entry in the List.
+   * @see ReportItem#estimateRetainedBytes()
+   */
+  public @Override long estimateRetainedBytes() {
+    return estimateObject(ITEM_FIELDS+2*REFERENCE+8)
+      +estimateList()
+      +itemBytes;
+  }
+  /** An ArrayList &amp; its array, or else a LinkedList with a node for each item. */
+  private long estimateList() {
+    if (items instanceof RandomAccess)
+      return estimateObject(4+4+REFERENCE)+estimateArray(items.size(), REFERENCE);
+    else
+      return estimateObject(4+4+2*REFERENCE)+items.size()*estimateObject(3*REFERENCE);
+  }
+
 
   /////////////////////
   // MORE INTERNALS: //
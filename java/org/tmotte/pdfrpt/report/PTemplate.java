@@ -0,0 +1,87 @@
+package org.tmotte.pdfrpt.report;
+import com.itextpdf.text.pdf.PdfTemplate;
+import org.tmotte.pdfrpt.SimplePDF;
+
+/**
+ * A PGroup that is drawn only once per document: the first time it is printed, its items are drawn into an iText
+ * PdfTemplate, and from then on printing just places that template, which costs a single operator in the page
+ * content no matter how much the PTemplate contains. This suits headers &amp; footers, which are repeated on every page
+ * by <code>Report.addVertical(item, pageCount, footer, header)</code>:
+ * <pre>
+    ReportItem header=new PTemplate(logo, title, new PLine(pdf.getWidth(), 0).setTop(30));
+   </pre>
+ * <p>Text that changes from page to page, i.e. a PText or PTextLines with a PageCount, is left out of the template
+ * and printed on top of it every time, as usual.</p>
+ * <p>As with PGroup, items should not be changed after they are added, and in particular after the PTemplate has been
+ * printed, since the template will not be redrawn. A new template is drawn for every SimplePDF the PTemplate
+ * is printed to, and kept by that SimplePDF rather than the PTemplate, so one PTemplate can be shared by reports
+ * printed on several threads at once, e.g. by ReportExecutor or ShardedReport, as long as each has its own
+ * SimplePDF.</p>
+ * @see SimplePDF#beginTemplate()
+ * @see SimplePDF#getTemplateCache()
+ */
+public class PTemplate extends PGroup {
+
+  /** What was drawn for one SimplePDF, kept in its template cache. */
+  private static class Drawn {
+    final PdfTemplate template;
+    final DisplayList list;
+    Drawn(PdfTemplate template, DisplayList list) {
+      this.template=template;
+      this.list=list;
+    }
+  }
+
+  ///////////////////
+  // CONSTRUCTORS: //
+  ///////////////////
+
+  /** Creates an empty PTemplate. */
+  public PTemplate() {
+    super();
+  }
+  /** Works the same as <code>PGroup(ReportItem...)</code>. */
+  public PTemplate(ReportItem... reportItems) {
+    super(reportItems);
+  }
+  /** Works the same as <code>PGroup(int, ReportItem...)</code>. */
+  public PTemplate(int hv, ReportItem... reportItems) {
+    super(hv, reportItems);
+  }
+
+  ////////////
+  // PRINT: //
+  ////////////
+
+  /**
+   * Places the template at <code>pdf</code>'s current X,Y coordinates, drawing it first if this is the first time
+   * we are printing to <code>pdf</code>. If <code>pdf</code> is already drawing a template, the items are
+   * simply printed, as with PGroup.
+   */
+  public @Override void print(SimplePDF pdf) throws Exception {
+    if (pdf.isDrawingTemplate()) {
+      super.print(pdf);
+      return;
+    }
+    Drawn drawn=(Drawn)pdf.getTemplateCache().get(this);
+    if (drawn==null) {
+      DisplayList list=new DisplayList();
+      PdfTemplate template=pdf.beginTemplate();
+      try {
+        super.compile(list, pdf);
+        list.renderFixed(pdf);
+      } finally {
+        pdf.endTemplate();
+      }
+      drawn=new Drawn(template, list);
+      pdf.getTemplateCache().put(this, drawn);
+    }
+    pdf.draw(drawn.template);
+    drawn.list.renderLive(pdf, pdf.getITextX(), pdf.getITextY());
+  }
+
+  /** Adds this PTemplate to <code>list</code> as is, so that its template is still used. */
+  public @Override void compile(DisplayList list, SimplePDF pdf) {
+    list.addItem(pdf.getITextX(), pdf.getITextY(), this);
+  }
+}
@@ -34,6 +34,8 @@ import org.tmotte.pdfrpt.SimplePDF;
  */
 public class PageCount {
   protected int page=1;
+  protected boolean deferred=false;
+  protected boolean stamped=false;
 
   /**
    * Increments the internal page count, which starts at 1.
@@ -47,4 +49,44 @@ public class PageCount {
   public int getTotal() {
     return page;
   }
+
+  /**
+   * Controls how <code>AbstractText.REPLACE_PAGE_COUNT</code> is rendered. Normally it is replaced with
+   * <code>getTotal()</code> when printed, which only works if the whole Report is printed at the end. When deferred,
+   * a placeholder is drawn instead using <code>SimplePDF.drawPageTotal()</code>, and the total number of pages in the
+   * PDF is filled in when the SimplePDF is closed. This allows page totals to work with <code>Report.setStreaming()</code>.
+   * <p>Note that the deferred total counts every page of the PDF, so it will differ from <code>getTotal()</code>
+   * if multiple Reports are printed to the same document.</p>
+   * @see org.tmotte.pdfrpt.SimplePDF#drawPageTotal()
+   * @see Report#setStreaming(SimplePDF)
+   */
+  public PageCount setDeferred(boolean deferred) {
+    this.deferred=deferred;
+    return this;
+  }
+  /**
+   * Indicates whether page totals are deferred.
+   * @see #setDeferred(boolean)
+   */
+  public boolean isDeferred() {
+    return deferred;
+  }
+
+  /**
+   * When true, PText &amp; PTextLines leave out any text that uses <code>AbstractText.REPLACE_CURR_PAGE</code> or
+   * <code>REPLACE_PAGE_COUNT</code>, while still taking up its space, so that page numbers can be stamped there
+   * once the PDF is finished by a PageStamper. This takes precedence over <code>setDeferred()</code>.
+   * @see PageStamper
+   */
+  public PageCount setStamped(boolean stamped) {
+    this.stamped=stamped;
+    return this;
+  }
+  /**
+   * Indicates whether page numbers are left to a PageStamper.
+   * @see #setStamped(boolean)
+   */
+  public boolean isStamped() {
+    return stamped;
+  }
 }
\ No newline at end of file
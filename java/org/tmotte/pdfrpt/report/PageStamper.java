@@ -0,0 +1,170 @@
+package org.tmotte.pdfrpt.report;
+import com.itextpdf.text.BaseColor;
+import com.itextpdf.text.io.RandomAccessSourceFactory;
+import com.itextpdf.text.pdf.PdfContentByte;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.PdfStamper;
+import com.itextpdf.text.pdf.RandomAccessFileOrArray;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import org.tmotte.pdfrpt.FontInfo;
+import org.tmotte.pdfrpt.PageInfo;
+import org.tmotte.pdfrpt.report.item.AbstractText;
+
+/**
+ * Stamps text such as "Page X of Y" onto every page of a finished PDF, in one pass with iText's PdfStamper.
+ * This is an alternative to PageCount &amp; <code>AbstractText.REPLACE_CURR_PAGE</code>, which rely on one
+ * footer instance being printed exactly once per page, in order, by one Report; a PageStamper needs nothing from
+ * the layout, so it works just as well for streaming Reports, for several Reports printed to one document, and for
+ * ShardedReport.
+ * <p>The text is drawn in the same place on every page, so leave that place empty while rendering: put it in
+ * the bottom margin, or in a footer (which <code>Report.addFooter()</code> always puts flush with the bottom
+ * margin) whose page number text uses a PageCount with <code>setStamped(true)</code>. The position is in the same
+ * coordinates as <code>SimplePDF.setXY()</code>, relative to the margins of the PageInfo given to the constructor,
+ * so a Y coordinate greater than <code>pageInfo.getHeight()</code> is in the bottom margin.</p>
+ * <p>Example:</p><pre>
+    PageInfo pageInfo=new PageInfo(PageInfo.LETTER_PORTRAIT, 30);
+    String numbers="Page "+PText.REPLACE_CURR_PAGE+" of "+PText.REPLACE_PAGE_COUNT;
+    PageCount pageCount=new PageCount().setStamped(true);
+    PText footer=new PText(font, pageInfo.getWidth(), numbers).setPageCount(pageCount).rightAlign();
+    Path temp=Files.createTempFile("report", ".pdf");
+    try (SimplePDF pdf=new SimplePDF(Files.newOutputStream(temp), pageInfo)) {
+      //Print a streaming Report here, using pageCount &amp; footer.
+    }
+    new PageStamper(pageInfo, font, numbers)
+      .setXY(pageInfo.getWidth(), pageInfo.getHeight()-footer.getHeight()).rightAlign()
+      .stamp(temp, new FileOutputStream("report.pdf"));
+    Files.delete(temp);
+    </pre>
+ * A PageStamper isn't changed by stamping, so once set up it can be shared between threads.
+ * @see PageCount#setStamped(boolean)
+ * @see ShardedReport#setPageStamper(PageStamper)
+ */
+public class PageStamper {
+
+  private final PageInfo pageInfo;
+  private final FontInfo fontInfo;
+  private final String text;
+  private float x, y;
+  private boolean rightAlign, center;
+
+  /**
+   * @param pageInfo Gives the page size &amp; margins that <code>setXY()</code> is relative to; it is copied.
+   * @param text The text to stamp, where <code>AbstractText.REPLACE_CURR_PAGE</code> and
+   *   <code>AbstractText.REPLACE_PAGE_COUNT</code> will be replaced with the page number &amp; number of pages.
+   */
+  public PageStamper(PageInfo pageInfo, FontInfo fontInfo, String text) {
+    this.pageInfo=new PageInfo(pageInfo);
+    this.fontInfo=fontInfo;
+    this.text=text;
+  }
+
+  /**
+   * Sets where the text goes: <code>y</code> is the top of the text, and <code>x</code> its left edge, right edge
+   * or center, depending on <code>rightAlign()</code> &amp; <code>center()</code>. The default is 0,0.
+   * @see org.tmotte.pdfrpt.SimplePDF#setXY(float, float)
+   */
+  public PageStamper setXY(float x, float y) {
+    this.x=x;
+    this.y=y;
+    return this;
+  }
+  /** Makes the X coordinate the right edge of the text. */
+  public PageStamper rightAlign() {
+    rightAlign=true;
+    center=false;
+    return this;
+  }
+  /** Makes the X coordinate the center of the text. */
+  public PageStamper center() {
+    rightAlign=false;
+    center=true;
+    return this;
+  }
+
+  /** Gets the text that will be stamped on page <code>page</code> of <code>total</code>. */
+  public String getText(int page, int total) {
+    return text
+      .replace(AbstractText.REPLACE_CURR_PAGE, String.valueOf(page))
+      .replace(AbstractText.REPLACE_PAGE_COUNT, String.valueOf(total));
+  }
+
+  ////////////
+  // STAMP: //
+  ////////////
+
+  /**
+   * Stamps every page of the PDF in <code>file</code> and writes the result to <code>out</code>, which is then
+   * closed, even if this fails. The file is read as it is needed, not loaded into memory.
+   * @return The number of pages.
+   */
+  public int stamp(Path file, OutputStream out) throws Exception {
+    PdfReader reader;
+    try {
+      reader=new PdfReader(
+        new RandomAccessFileOrArray(new RandomAccessSourceFactory().createBestSource(file.toString())), null
+      );
+    } catch (Throwable t) {
+      ReportExecutor.closeAfterFailure(out, t);
+      throw t;
+    }
+    return stamp(reader, out);
+  }
+  /** Works the same as <code>stamp(file, out)</code>, for a PDF that's in memory. */
+  public int stamp(byte[] pdf, OutputStream out) throws Exception {
+    PdfReader reader;
+    try {
+      reader=new PdfReader(pdf);
+    } catch (Throwable t) {
+      ReportExecutor.closeAfterFailure(out, t);
+      throw t;
+    }
+    return stamp(reader, out);
+  }
+  /**
+   * Stamps every page of <code>reader</code>'s PDF and writes the result to <code>out</code>; both are then
+   * closed, even if this fails.
+   * @return The number of pages.
+   */
+  public int stamp(PdfReader reader, OutputStream out) throws Exception {
+    try {
+      int total=reader.getNumberOfPages();
+      PdfStamper stamper=new PdfStamper(reader, out);
+      for (int p=1; p<=total; p++)
+        stamp(stamper.getOverContent(p), p, total);
+      stamper.close();
+      return total;
+    } catch (Throwable t) {
+      //PdfStamper only closes out once it has written everything:
+      ReportExecutor.closeAfterFailure(out, t);
+      throw t;
+    } finally {
+      reader.close();
+    }
+  }
+  /**
+   * Draws the text for page <code>page</code> of <code>total</code> onto <code>cb</code>, the way
+   * <code>SimplePDF.draw()</code> would, leaving <code>cb</code>'s state as it was.
+   */
+  public void stamp(PdfContentByte cb, int page, int total) {
+    String t=getText(page, total);
+    float tx=pageInfo.getMarginLeft()+x,
+          ty=pageInfo.getTotalHeight()-pageInfo.getMarginTop()-y
+            -(fontInfo.getMaxAscent()+fontInfo.getAdjustLineSpacingTop());
+    if (rightAlign)
+      tx-=fontInfo.getWidth(t);
+    else
+    if (center)
+      tx-=fontInfo.getWidth(t)/2;
+    BaseColor color=fontInfo.getColor();
+    cb.saveState();
+    if (color!=null)
+      cb.setColorFill(color);
+    cb.beginText();
+    cb.setFontAndSize(fontInfo.getFont(), fontInfo.getFontSize());
+    cb.setTextMatrix(tx, ty);
+    cb.showText(t);
+    cb.endText();
+    cb.restoreState();
+  }
+}
@@ -1,7 +1,18 @@
 package org.tmotte.pdfrpt.report;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 import org.tmotte.pdfrpt.SimplePDF;
 import org.tmotte.pdfrpt.PageInfo;
+import org.tmotte.pdfrpt.RenderStats;
+import org.tmotte.pdfrpt.jfr.PageBreakEvent;
+import org.tmotte.pdfrpt.jfr.PagePrintEvent;
 
 /**
  * <b>The centerpiece of this package.</b> ReportItems are added to a Report, and then the Report is printed.
@@ -28,10 +39,21 @@ import org.tmotte.pdfrpt.PageInfo;
  * <p>Note that Report does not actually need an instance of SimplePDF - which requires an OutputStream
  * because iText requires same - until our final step, when we print the document. On the other hand,
  * Report requires enough memory for the entire document structure <em>until</em> that point. This tradeoff
- * should be acceptable for most use cases, but it bears keeping in mind.
+ * should be acceptable for most use cases, but it bears keeping in mind; for very large documents, refer to
+ * <code>setStreaming()</code>, which prints each page as soon as it is finished.
+ * @see #setStreaming(SimplePDF)
  */
 public class Report extends PGroup {
 
+  private SimplePDF streamTo;
+
+  //Layout time for RenderStats, handed over at print(); only the outermost layout call is timed:
+  private long layoutNanos, layoutStart;
+  private int layoutDepth;
+
+  //For JFR events: pages started by newPage(), where the current one starts in items, and pages printed:
+  private int pagesStarted=1, pageStart=0, pagesPrinted=1;
+
   ///////////////////
   // CONSTRUCTORS: //
   ///////////////////
@@ -61,19 +83,77 @@ public class Report extends PGroup {
   }
 
 
+  ////////////////
+  // STREAMING: //
+  ////////////////
+
+  /**
+   * Puts this Report in "streaming" mode: Every time a new page is started, whether by <code>newPage()</code> or
+   * by <code>addVertical(item, pageCount, footer, header)</code>, the finished page is printed to <code>pdf</code>
+   * and its ReportItems are discarded. Thus the Report only needs enough memory for about one page, no matter how long
+   * the document gets. The final page is printed as usual, i.e. by <code>print()</code> or <code>addFooterAndPrint()</code>,
+   * which should be given the same <code>pdf</code>.
+   * <p>Since pages are printed before the Report knows how many pages there will be,
+   * <code>AbstractText.REPLACE_PAGE_COUNT</code> requires a deferred PageCount, which lets SimplePDF fill in the
+   * total when it is closed.</p>
+   * @param pdf The PDF to print finished pages to, or null to turn streaming off; items already printed will not be
+   *   printed again.
+   * @see PageCount#setDeferred(boolean)
+   */
+  public Report setStreaming(SimplePDF pdf) {
+    this.streamTo=pdf;
+    return this;
+  }
+  /**
+   * Indicates whether <code>setStreaming()</code> has been invoked with a non-null SimplePDF.
+   * @see #setStreaming(SimplePDF)
+   */
+  public boolean isStreaming() {
+    return streamTo!=null;
+  }
+  /**
+   * Estimates the heap retained by the pages laid out but not yet printed, i.e. every page so far, or only the
+   * current one when streaming. This is kept up to date as items are added, so it can be checked as often as
+   * needed, e.g. to turn on streaming before a large report runs out of memory; the pages laid out so far are then
+   * printed at the next page break:
+   * <pre>
+      if (!report.isStreaming() &amp;&amp; report.getMemoryEstimate()&gt;Runtime.getRuntime().maxMemory()/4)
+        report.setStreaming(pdf);
+     </pre>
+   * @see ReportItem#estimateRetainedBytes()
+   */
+  public long getMemoryEstimate() {
+    return estimateRetainedBytes();
+  }
+
   //////////////
   // METHODS: //
   //////////////
 
 
   /**
-   * Starts a new page in the PDF file, which will be created using SimplePDF.newPage()
+   * Starts a new page in the PDF file, which will be created using SimplePDF.newPage(). In streaming mode, the
+   * current page is printed, followed by the page break.
    * @see SimplePDF#newPage()
+   * @see #setStreaming(SimplePDF)
    */
   public Report newPage() throws Exception {
     add(newPage);
+    if (streamTo!=null)
+      flushPage();
+    pagesStarted++;
+    pageStart=items.size();
     return this;
   }
+  private void flushPage() throws Exception {
+    print(streamTo);
+    for (ReportItem item: items)
+      if (item.countedIn==this)
+        item.countedIn=null;
+    items.clear();
+    itemBytes=0;
+    lastAdded=null;
+  }
   private ReportItem newPage=new ReportItem(){
     public void print(SimplePDF pdf) throws Exception {
       pdf.newPage();
@@ -124,18 +204,204 @@ public class Report extends PGroup {
   public boolean addVertical(
       ReportItem item, PageCount pageCount, ReportItem footer, ReportItem header
     ) throws Exception {
-    if (!addVerticalIfPageFits(item, footer==null ?0 :footer.getHeight())){
-      if (footer!=null)
-        addFooter(footer);
-      newPage();
-      if (pageCount!=null)
-        pageCount.inc();
-      if (header!=null)
-        addVertical(header);
-      addVertical(item);
-      return false;
+    startLayout();
+    try {
+      if (!addVerticalIfPageFits(item, footer==null ?0 :footer.getHeight())){
+        PageBreakEvent event=new PageBreakEvent();
+        event.begin();
+        if (footer!=null)
+          addFooter(footer);
+        int finished=items.size()-pageStart;
+        newPage();
+        if (pageCount!=null)
+          pageCount.inc();
+        if (header!=null)
+          addVertical(header);
+        addVertical(item);
+        event.end();
+        if (event.shouldCommit()) {
+          event.page=pagesStarted;
+          event.items=finished;
+          event.itemHeight=item.getHeight();
+          event.commit();
+        }
+        return false;
+      }
+      return true;
+    } finally {
+      endLayout();
     }
-    return true;
+  }
+
+  /**
+   * A shortcut to <code>addAllVertical(records, pageCount, footer, header, ForkJoinPool.commonPool())</code>.
+   */
+  public Report addAllVertical(
+      List<? extends Supplier<? extends ReportItem>> records, PageCount pageCount, ReportItem footer, ReportItem header
+    ) throws Exception {
+    return addAllVertical(records, pageCount, footer, header, ForkJoinPool.commonPool());
+  }
+  /**
+   * Creates a large number of ReportItems in parallel and adds them in order, with the same result as
+   * calling <code>addVertical(record.get(), pageCount, footer, header)</code> for each one.
+   * Creating ReportItems - measuring text, breaking it into lines and so forth - is usually most of the work of
+   * building a Report, and each record can be done independently, so <code>records</code> are invoked
+   * on <code>pool</code> in chunks; only the pagination is done one record at a time, on the calling thread. Each
+   * chunk is laid out while the next is being created, so memory use stays modest (and the Report can still stream).
+   * <p>Since the Suppliers run on several threads at once, they should not change anything they share;
+   * in particular, FontInfo instances they use should be frozen. If a Supplier or the layout throws, the chunk
+   * being created is cancelled, and no more Suppliers are invoked once this has thrown.</p>
+   * @param records Creates each record, in order.
+   * @see org.tmotte.pdfrpt.FontInfo#freeze()
+   */
+  public Report addAllVertical(
+      List<? extends Supplier<? extends ReportItem>> records,
+      PageCount pageCount, ReportItem footer, ReportItem header, ForkJoinPool pool
+    ) throws Exception {
+    startLayout();
+    AtomicBoolean stop=new AtomicBoolean();
+    ForkJoinTask<ReportItem[]> next=null;
+    try {
+      int size=records.size();
+      next=size>0 ?submitChunk(records, 0, pool, stop) :null;
+      for (int start=0; start<size; start+=chunkSize) {
+        ReportItem[] chunk=getChunk(next);
+        int nextStart=start+chunkSize;
+        next=nextStart<size ?submitChunk(records, nextStart, pool, stop) :null;
+        for (ReportItem item: chunk)
+          addVertical(item, pageCount, footer, header);
+      }
+      return this;
+    } finally {
+      //Only set if something failed; a chunk's parallel stream keeps going after cancel(), hence the flag:
+      if (next!=null) {
+        stop.set(true);
+        next.cancel(true);
+      }
+      endLayout();
+    }
+  }
+  /**
+   * Adds a ReportItem for every row in <code>rows</code>, with the same result as calling
+   * <code>addVertical(renderer.render(row), pageCount, footer, header)</code> for each one. Rows are pulled one
+   * at a time, only once the previous one has been laid out, and nothing keeps a reference to them afterwards; in
+   * streaming mode each page is printed &amp; discarded as soon as it is full, before the next row is pulled.
+   * So a streaming Report needs memory for about one page and one row, no matter how many rows there are, and a
+   * source that fetches lazily, like a database cursor, is never asked to get ahead of the PDF.
+   * <p>Without streaming, every page is kept until <code>print()</code>, as with <code>addVertical()</code>.</p>
+   * @param rows Read once, on the calling thread.
+   * @see #setStreaming(SimplePDF)
+   */
+  public <T> Report addRows(
+      Iterator<? extends T> rows, RowRenderer<? super T> renderer,
+      PageCount pageCount, ReportItem footer, ReportItem header
+    ) throws Exception {
+    startLayout();
+    try {
+      while (rows.hasNext())
+        addVertical(renderer.render(rows.next()), pageCount, footer, header);
+      return this;
+    } finally {
+      endLayout();
+    }
+  }
+
+  private final static int chunkSize=1024;
+  private static ForkJoinTask<ReportItem[]> submitChunk(
+      List<? extends Supplier<? extends ReportItem>> records, int start, ForkJoinPool pool, AtomicBoolean stop
+    ) {
+    int end=Math.min(start+chunkSize, records.size());
+    return pool.submit(()->
+      IntStream.range(start, end).parallel().mapToObj(i->{
+        if (stop.get())
+          throw new CancellationException();
+        return records.get(i).get();
+      }).toArray(ReportItem[]::new)
+    );
+  }
+  private static ReportItem[] getChunk(ForkJoinTask<ReportItem[]> task) throws Exception {
+    try {
+      return task.get();
+    } catch (ExecutionException e) {
+      Throwable cause=e.getCause();
+      if (cause instanceof Exception)
+        throw (Exception)cause;
+      if (cause instanceof Error)
+        throw (Error)cause;
+      throw e;
+    }
+  }
+
+  /**
+   * Prints the Report as <code>PGroup.print()</code> does; if <code>pdf</code> has RenderStats, they are given the
+   * time spent printing, and the time spent on layout so far. Each page printed is a
+   * <code>PagePrintEvent</code> for Java Flight Recorder.
+   * @see SimplePDF#setRenderStats(org.tmotte.pdfrpt.RenderStats)
+   * @see PagePrintEvent
+   */
+  public @Override void print(SimplePDF pdf) throws Exception {
+    long start=System.nanoTime();
+    try {
+      printPages(pdf);
+    } finally {
+      long printed=System.nanoTime()-start;
+      //Streaming prints in the middle of layout, which shouldn't count as layout:
+      if (layoutDepth>0)
+        layoutStart+=printed;
+      RenderStats stats=pdf.getRenderStats();
+      if (stats!=null) {
+        stats.addPrintNanos(printed).addLayoutNanos(layoutNanos);
+        layoutNanos=0;
+      }
+    }
+  }
+  private void printPages(SimplePDF pdf) throws Exception {
+    float absLeft=pdf.getX(),
+          absTop=pdf.getY();
+    PagePrintEvent event=startPage(pdf);
+    int count=0;
+    //Once per print, so an Iterator costs nothing, and keeps a LinkedList in a subclass from going O(n^2):
+    for (ReportItem p: items) {
+      pdf.setXY(absLeft+p.getLeft(), absTop+p.getTop());
+      p.print(pdf);
+      if (p==newPage) {
+        endPage(event, count, pdf);
+        pagesPrinted++;
+        event=startPage(pdf);
+        count=0;
+      }
+      else
+        count++;
+    }
+    endPage(event, count, pdf);
+    pdf.setXY(absLeft, absTop);
+  }
+  private static PagePrintEvent startPage(SimplePDF pdf) {
+    PagePrintEvent event=new PagePrintEvent();
+    if (event.isEnabled())
+      event.bytes=pdf.getBytesWritten();
+    event.begin();
+    return event;
+  }
+  private void endPage(PagePrintEvent event, int count, SimplePDF pdf) {
+    //A streaming Report's pages after the first start with newPage(), so there's nothing before it:
+    if (count==0)
+      return;
+    event.end();
+    if (event.shouldCommit()) {
+      event.page=pagesPrinted;
+      event.items=count;
+      event.bytes=pdf.getBytesWritten()-event.bytes;
+      event.commit();
+    }
+  }
+  private void startLayout() {
+    if (layoutDepth++==0)
+      layoutStart=System.nanoTime();
+  }
+  private void endLayout() {
+    if (--layoutDepth==0)
+      layoutNanos+=System.nanoTime()-layoutStart;
   }
 
   /**
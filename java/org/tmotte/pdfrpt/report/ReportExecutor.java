@@ -0,0 +1,236 @@
+package org.tmotte.pdfrpt.report;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.tmotte.pdfrpt.FontInfo;
+import org.tmotte.pdfrpt.PageInfo;
+import org.tmotte.pdfrpt.SimplePDF;
+import org.tmotte.pdfrpt.WriterInfo;
+
+/**
+ * Generates many independent reports at once, each to its own OutputStream, using a pool of threads.
+ * <p>Each job gets its own SimplePDF and should build its own Report and ReportItems, since those keep track of
+ * printing state (page counters and the like) and must not be shared. What <em>can</em> be shared between jobs
+ * is the expensive stuff:</p>
+ * <ul>
+ *   <li>Fonts: load them once with FontCatalog, and share FontInfo instances only after
+ *     <code>FontInfo.freeze()</code>, which guarantees that no job can change them for the others. A job that needs
+ *     a variation can make its own copy.</li>
+ *   <li>Images: an iText Image loaded with <code>SimplePDF.loadImage()</code> is only read while printing; still,
+ *     give each job its own PImage (e.g. with the <code>PImage(PImage)</code> copy constructor).</li>
+ * </ul>
+ * <p>Example:</p><pre>
+    final FontInfo font=new FontInfo(FontCatalog.getDefault().getFont("MyFont.ttf", fontURL), 10).freeze();
+    List&lt;ReportExecutor.Job&gt; jobs=new ArrayList&lt;&gt;();
+    for (final Invoice inv: invoices)
+      jobs.add(pdf-&gt;printInvoice(pdf, font, inv));
+    ReportExecutor.Batch batch=new ReportExecutor(8)
+      .run(jobs, i-&gt;new FileOutputStream("invoice"+i+".pdf"));
+    System.out.println(batch);
+    </pre>
+ * <p>To use virtual threads (Java 21 and up), pass <code>Executors.newVirtualThreadPerTaskExecutor()</code> to
+ * <code>ReportExecutor(ExecutorService)</code>.</p>
+ * @see FontInfo#freeze()
+ * @see org.tmotte.pdfrpt.FontCatalog
+ */
+public class ReportExecutor {
+
+  /** Prints one report. The SimplePDF is closed by ReportExecutor when the job returns. */
+  public interface Job {
+    public void print(SimplePDF pdf) throws Exception;
+  }
+  /** Provides the OutputStream for the job at <code>index</code> in the List given to <code>run()</code>. */
+  public interface Output {
+    public OutputStream open(int index) throws Exception;
+  }
+
+  private final ExecutorService service;
+  private PageInfo pageInfo=new PageInfo();
+  private WriterInfo writerInfo=new WriterInfo();
+
+  ///////////////////
+  // CONSTRUCTORS: //
+  ///////////////////
+
+  /** Creates a ReportExecutor with its own pool of <code>threads</code> daemon threads. */
+  public ReportExecutor(int threads) {
+    this(newPool(threads, "ReportExecutor"));
+  }
+  /** Creates a ReportExecutor that runs its jobs on <code>service</code>. */
+  public ReportExecutor(ExecutorService service) {
+    this.service=service;
+  }
+
+  /** Sets the page size &amp; margins used for every SimplePDF; the default is <code>new PageInfo()</code>. */
+  public ReportExecutor setPageInfo(PageInfo pageInfo) {
+    this.pageInfo=pageInfo;
+    return this;
+  }
+  /**
+   * Sets the compression &amp; PDF version settings used for every SimplePDF; the default is
+   * <code>new WriterInfo()</code>.
+   */
+  public ReportExecutor setWriterInfo(WriterInfo writerInfo) {
+    this.writerInfo=writerInfo;
+    return this;
+  }
+
+  /** Shuts down the underlying ExecutorService, letting any jobs in progress finish. */
+  public void shutdown() {
+    service.shutdown();
+  }
+
+  //////////
+  // RUN: //
+  //////////
+
+  /**
+   * Runs all of <code>jobs</code> and waits for them to finish. A job that fails does not stop the others;
+   * its exception is recorded in the resulting Batch.
+   * @param output Provides an OutputStream for each job; it will be closed when the job's PDF is finished.
+   * @return The outcome of the jobs, including throughput statistics.
+   */
+  public Batch run(List<? extends Job> jobs, final Output output) throws InterruptedException {
+    final PageInfo pageInfo=this.pageInfo;
+    final WriterInfo writerInfo=this.writerInfo;
+    long start=System.nanoTime();
+    List<Future<Long>> futures=new ArrayList<Future<Long>>(jobs.size());
+    for (int i=0; i<jobs.size(); i++) {
+      final int index=i;
+      final Job job=jobs.get(i);
+      futures.add(service.submit(()->{
+        CountingOutputStream out=new CountingOutputStream(output.open(index));
+        try (SimplePDF pdf=new SimplePDF(out, pageInfo, writerInfo)) {
+          job.print(pdf);
+        } finally {
+          out.close();
+        }
+        return out.count;
+      }));
+    }
+    Map<Integer, Exception> failures=new TreeMap<Integer, Exception>();
+    long bytes=0;
+    try {
+      for (int i=0; i<futures.size(); i++)
+        try {
+          bytes+=futures.get(i).get();
+        } catch (ExecutionException e) {
+          Throwable cause=e.getCause();
+          if (cause instanceof Error)
+            throw (Error)cause;
+          failures.put(i, (Exception)cause);
+        }
+    } catch (InterruptedException e) {
+      for (Future<Long> f: futures)
+        f.cancel(true);
+      throw e;
+    }
+    return new Batch(jobs.size(), failures, bytes, System.nanoTime()-start);
+  }
+
+  ////////////
+  // BATCH: //
+  ////////////
+
+  /** The outcome of <code>ReportExecutor.run()</code>. */
+  public static class Batch {
+    private final int count;
+    private final Map<Integer, Exception> failures;
+    private final long bytes, elapsedNanos;
+
+    Batch(int count, Map<Integer, Exception> failures, long bytes, long elapsedNanos) {
+      this.count=count;
+      this.failures=Collections.unmodifiableMap(failures);
+      this.bytes=bytes;
+      this.elapsedNanos=elapsedNanos;
+    }
+
+    /** The number of jobs, including those that failed. */
+    public int getCount() {
+      return count;
+    }
+    /** Exceptions thrown by failed jobs, keyed by index, in order. Empty if all went well. */
+    public Map<Integer, Exception> getFailures() {
+      return failures;
+    }
+    /** The total number of bytes written by successful jobs. */
+    public long getBytes() {
+      return bytes;
+    }
+    /** The wall-clock time for the whole batch. */
+    public long getElapsedNanos() {
+      return elapsedNanos;
+    }
+    /** Successful reports per second of wall-clock time. */
+    public double getReportsPerSecond() {
+      return (count-failures.size())*1e9/Math.max(elapsedNanos, 1);
+    }
+    /** Megabytes (of 1024*1024 bytes) written per second of wall-clock time. */
+    public double getMegabytesPerSecond() {
+      return bytes*1e9/(1024*1024)/Math.max(elapsedNanos, 1);
+    }
+    public @Override String toString() {
+      return String.format(
+        "%d reports (%d failed), %d bytes in %.3f s: %.1f reports/s, %.2f MB/s",
+        count, failures.size(), bytes, elapsedNanos/1e9, getReportsPerSecond(), getMegabytesPerSecond()
+      );
+    }
+  }
+
+  ////////////////
+  // INTERNALS: //
+  ////////////////
+
+  /** A fixed pool of daemon threads named <code>name-1</code>, <code>name-2</code> and so on. */
+  static ExecutorService newPool(int threads, String name) {
+    return Executors.newFixedThreadPool(threads, daemonThreads(name));
+  }
+  static ThreadFactory daemonThreads(final String name) {
+    return new ThreadFactory() {
+      private final AtomicInteger count=new AtomicInteger();
+      public @Override Thread newThread(Runnable r) {
+        Thread t=new Thread(r, name+"-"+count.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+      }
+    };
+  }
+
+  /**
+   * Closes <code>out</code> for an operation that promised to close it but failed with <code>failure</code>; if
+   * that fails too, its exception is added to <code>failure</code>.
+   */
+  static void closeAfterFailure(OutputStream out, Throwable failure) {
+    try {
+      out.close();
+    } catch (Exception e) {
+      failure.addSuppressed(e);
+    }
+  }
+
+  static class CountingOutputStream extends FilterOutputStream {
+    long count=0;
+    CountingOutputStream(OutputStream out) {
+      super(out);
+    }
+    public @Override void write(int b) throws IOException {
+      out.write(b);
+      count++;
+    }
+    public @Override void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      count+=len;
+    }
+  }
+}
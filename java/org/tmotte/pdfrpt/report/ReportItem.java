@@ -16,6 +16,8 @@ import com.itextpdf.text.pdf.BaseFont;
  */
 public abstract class ReportItem {
   private float x=0, y=0, width=0, height=0;
+  /** The PGroup whose <code>estimateRetainedBytes()</code> has already counted this ReportItem, if any. */
+  PGroup countedIn;
 
   /** 
    * This method must be implemented by subclasses so that they can print themselves. Note that PGroup
@@ -24,6 +26,17 @@ public abstract class ReportItem {
    */
   public abstract void print(SimplePDF pdf) throws Exception;
 
+  /**
+   * Adds this ReportItem to <code>list</code> as the operations that <code>print(pdf)</code> would perform; as with
+   * <code>print()</code>, PGroup positions <code>pdf</code>'s x/y coordinates first. <code>pdf</code> is only used
+   * for positioning and should not be drawn on. The default implementation adds the ReportItem as is, so that it
+   * is printed as usual when <code>list</code> is rendered; subclasses with simple output should override this.
+   * @see DisplayList
+   */
+  public void compile(DisplayList list, SimplePDF pdf) throws Exception {
+    list.addItem(pdf.getITextX(), pdf.getITextY(), this);
+  }
+
   /** 
    * Sets the top of this ReportItem to <code>x</code>. A value of zero indicates that the top
    * of this item is directly aligned with the top of its container; positive values indicate
@@ -111,6 +124,42 @@ public abstract class ReportItem {
   public float getRight() {
     return getLeft()+getWidth();
   }
+
+  /////////////
+  // MEMORY: //
+  /////////////
+
+  /**
+   * Estimates the number of heap bytes retained by this ReportItem, assuming a 64-bit JVM with compressed
+   * references. Objects meant to be shared, such as FontInfo, BaseFont and BaseColor, are not counted. The
+   * default counts only the fields of ReportItem itself; subclasses that hold more should override this, typically
+   * as <code>estimateObject(ITEM_FIELDS+<i>their own field bytes</i>)</code> plus whatever those fields refer to.
+   * @see Report#getMemoryEstimate()
+   */
+  public long estimateRetainedBytes() {
+    return estimateObject(ITEM_FIELDS);
+  }
+
+  /** The bytes taken by a reference to an object. */
+  protected final static int REFERENCE=4;
+  /** The bytes taken by ReportItem's own fields. */
+  protected final static int ITEM_FIELDS=16+REFERENCE;
+
+  /** Estimates the size of an object with <code>fieldBytes</code> of fields: a 12-byte header, padded to 8. */
+  protected static long estimateObject(long fieldBytes) {
+    return align(12+fieldBytes);
+  }
+  /** Estimates the size of an array of <code>length</code> elements of <code>elementBytes</code> each. */
+  protected static long estimateArray(int length, int elementBytes) {
+    return align(16+(long)length*elementBytes);
+  }
+  /** Estimates the size of <code>s</code>, assuming mostly Latin-1 text, which Java stores as 1 byte per char. */
+  protected static long estimateString(String s) {
+    return s==null ?0 :24+estimateArray(s.length(), 1);
+  }
+  private static long align(long bytes) {
+    return (bytes+7) & ~7L;
+  }
  
 
 }
@@ -0,0 +1,349 @@
+package org.tmotte.pdfrpt.report;
+import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.tmotte.pdfrpt.PageInfo;
+import org.tmotte.pdfrpt.SimplePDF;
+import org.tmotte.pdfrpt.WriterInfo;
+
+/**
+ * Renders reports on demand with admission control, e.g. in an HTTP service where each request streams a PDF
+ * to its client. Every render gets a thread of its own (a virtual thread on Java 21 and up, otherwise a daemon
+ * platform thread), but only <code>maxConcurrent</code> heavy renders may run at once; up to
+ * <code>maxQueued</code> more may wait their turn, and beyond that <code>submit()</code> refuses new ones
+ * straight away, so that the service can answer "busy" (e.g. HTTP 503) instead of piling up work. Light renders,
+ * e.g. a one-page receipt, can be submitted with <code>heavy=false</code> so they never wait behind heavy ones.
+ * <p>Each render writes straight to the OutputStream it was given, so a Report in streaming mode
+ * (<code>Report.setStreaming()</code>) sends each page to the client as soon as it is finished.</p>
+ * <p>Example:</p><pre>
+    ReportService reports=new ReportService(Runtime.getRuntime().availableProcessors(), 50)
+      .setMaxWait(30, TimeUnit.SECONDS);
+    ...
+    try {
+      reports.submit(pdf-&gt;printStatement(pdf, account), response.getOutputStream()).get();
+    } catch (RejectedExecutionException e) {
+      response.sendError(503);
+    }
+    ...
+    log.info(reports.getMetrics().toString());
+    </pre>
+ * As with ReportExecutor, each job should build its own Report &amp; ReportItems, and share only frozen fonts.
+ * @see ReportExecutor
+ */
+public class ReportService {
+
+  private final ExecutorService service;
+  private final Semaphore permits;
+  private final int maxQueued;
+  private PageInfo pageInfo=new PageInfo();
+  private WriterInfo writerInfo=new WriterInfo();
+  private long maxWaitNanos=0;
+
+  private final AtomicInteger queued=new AtomicInteger(), running=new AtomicInteger();
+  private final AtomicLong submitted=new AtomicLong(), rejected=new AtomicLong(), timedOut=new AtomicLong(),
+                           interrupted=new AtomicLong(), completed=new AtomicLong(), failed=new AtomicLong(), bytes=new AtomicLong(),
+                           waitNanos=new AtomicLong(), maxWait=new AtomicLong(),
+                           renderNanos=new AtomicLong(), maxRender=new AtomicLong();
+
+  ///////////////////
+  // CONSTRUCTORS: //
+  ///////////////////
+
+  /**
+   * Creates a ReportService that runs each render on a virtual thread if possible (Java 21 and up), and otherwise
+   * on a daemon platform thread.
+   * @param maxConcurrent The number of heavy renders allowed to run at once, typically the number of CPUs.
+   * @param maxQueued The number of heavy renders allowed to wait for one of those to finish.
+   */
+  public ReportService(int maxConcurrent, int maxQueued) {
+    this(newThreadPerTaskExecutor(), maxConcurrent, maxQueued);
+  }
+  /**
+   * Creates a ReportService that runs renders on <code>service</code>, which should not limit the number of
+   * threads itself, since waiting renders occupy one.
+   */
+  public ReportService(ExecutorService service, int maxConcurrent, int maxQueued) {
+    if (maxConcurrent<1 || maxQueued<0)
+      throw new RuntimeException("Invalid limits: "+maxConcurrent+" concurrent, "+maxQueued+" queued");
+    this.service=service;
+    this.permits=new Semaphore(maxConcurrent, true);
+    this.maxQueued=maxQueued;
+  }
+
+  /** Sets the page size &amp; margins used for every SimplePDF; the default is <code>new PageInfo()</code>. */
+  public ReportService setPageInfo(PageInfo pageInfo) {
+    this.pageInfo=pageInfo;
+    return this;
+  }
+  /**
+   * Sets the compression &amp; PDF version settings used for every SimplePDF; the default is
+   * <code>new WriterInfo()</code>.
+   */
+  public ReportService setWriterInfo(WriterInfo writerInfo) {
+    this.writerInfo=writerInfo;
+    return this;
+  }
+  /**
+   * Sets how long a heavy render may wait for its turn before giving up with a RejectedExecutionException; the
+   * default is 0, for no limit.
+   */
+  public ReportService setMaxWait(long time, TimeUnit unit) {
+    this.maxWaitNanos=unit.toNanos(time);
+    return this;
+  }
+
+  /** Shuts down the underlying ExecutorService, letting any renders in progress or waiting finish. */
+  public void shutdown() {
+    service.shutdown();
+  }
+
+  /////////////
+  // SUBMIT: //
+  /////////////
+
+  /** A shortcut to <code>submit(job, out, true)</code>. */
+  public CompletableFuture<Long> submit(ReportExecutor.Job job, OutputStream out) {
+    return submit(job, out, true);
+  }
+  /**
+   * Starts rendering <code>job</code> to <code>out</code> and returns immediately.
+   * @param heavy If true, the render waits for one of the <code>maxConcurrent</code> slots; if false, it starts
+   *   right away regardless.
+   * @return Completes with the number of bytes written once the PDF is finished &amp; <code>out</code> closed, or
+   *   with the job's exception, or with a RejectedExecutionException if it waited longer than
+   *   <code>setMaxWait()</code> allows, or with an InterruptedException if its thread was interrupted while
+   *   waiting. <code>out</code> is closed in every case.
+   * @throws RejectedExecutionException If the render would have to wait and <code>maxQueued</code> renders are
+   *   already waiting; <code>out</code> is not used or closed.
+   */
+  public CompletableFuture<Long> submit(final ReportExecutor.Job job, final OutputStream out, final boolean heavy) {
+    submitted.incrementAndGet();
+    final long start=System.nanoTime();
+    final boolean admitted;
+    if (!heavy)
+      admitted=true;
+    else
+    if (tryAcquire())
+      admitted=true;
+    else
+    if (queued.incrementAndGet()<=maxQueued)
+      admitted=false;
+    else {
+      queued.decrementAndGet();
+      rejected.incrementAndGet();
+      throw new RejectedExecutionException("Too many reports: "+maxQueued+" already waiting");
+    }
+    final PageInfo pageInfo=this.pageInfo;
+    final WriterInfo writerInfo=this.writerInfo;
+    final long maxWaitNanos=this.maxWaitNanos;
+    final CompletableFuture<Long> result=new CompletableFuture<Long>();
+    try {
+      service.execute(()->{
+        if (heavy && !admitted && !await(maxWaitNanos, out, result))
+          return;
+        render(job, out, heavy, start, pageInfo, writerInfo, result);
+      });
+    } catch (RejectedExecutionException e) {
+      if (admitted && heavy)
+        permits.release();
+      if (!admitted)
+        queued.decrementAndGet();
+      rejected.incrementAndGet();
+      throw e;
+    }
+    return result;
+  }
+
+  //////////////
+  // METRICS: //
+  //////////////
+
+  /** Gets the current counts &amp; latencies. */
+  public Metrics getMetrics() {
+    return new Metrics(this);
+  }
+
+  /** A snapshot of a ReportService's counts &amp; latencies; times are in nanoseconds. */
+  public static class Metrics {
+    private final int queued, running;
+    private final long submitted, rejected, timedOut, interrupted, completed, failed, bytes,
+                       waitNanos, maxWaitNanos, renderNanos, maxRenderNanos;
+
+    Metrics(ReportService rs) {
+      queued=rs.queued.get();
+      running=rs.running.get();
+      submitted=rs.submitted.get();
+      rejected=rs.rejected.get();
+      timedOut=rs.timedOut.get();
+      interrupted=rs.interrupted.get();
+      completed=rs.completed.get();
+      failed=rs.failed.get();
+      bytes=rs.bytes.get();
+      waitNanos=rs.waitNanos.get();
+      maxWaitNanos=rs.maxWait.get();
+      renderNanos=rs.renderNanos.get();
+      maxRenderNanos=rs.maxRender.get();
+    }
+
+    /** Heavy renders waiting for their turn. */
+    public int getQueued() {
+      return queued;
+    }
+    /** Renders in progress, heavy or light. */
+    public int getRunning() {
+      return running;
+    }
+    /** Calls to <code>submit()</code>, including rejected ones. */
+    public long getSubmitted() {
+      return submitted;
+    }
+    /** Renders refused by <code>submit()</code> because too many were waiting. */
+    public long getRejected() {
+      return rejected;
+    }
+    /** Renders that gave up after waiting longer than <code>setMaxWait()</code> allows. */
+    public long getTimedOut() {
+      return timedOut;
+    }
+    /** Renders whose thread was interrupted while waiting for their turn; they never start. */
+    public long getInterrupted() {
+      return interrupted;
+    }
+    /** Renders that finished successfully. */
+    public long getCompleted() {
+      return completed;
+    }
+    /** Renders that threw an exception. */
+    public long getFailed() {
+      return failed;
+    }
+    /** Bytes written by successful renders. */
+    public long getBytes() {
+      return bytes;
+    }
+    /** Total time that started renders spent between <code>submit()</code> and starting. */
+    public long getWaitNanos() {
+      return waitNanos;
+    }
+    /** The longest time a started render spent between <code>submit()</code> and starting. */
+    public long getMaxWaitNanos() {
+      return maxWaitNanos;
+    }
+    /** Total time spent rendering, by successful &amp; failed renders. */
+    public long getRenderNanos() {
+      return renderNanos;
+    }
+    /** The longest time spent on one render. */
+    public long getMaxRenderNanos() {
+      return maxRenderNanos;
+    }
+    public @Override String toString() {
+      long started=Math.max(completed+failed, 1);
+      return String.format(
+        "%d queued, %d running; %d submitted, %d rejected, %d timed out, %d interrupted, %d completed, %d failed,"
+          +" %d bytes;"
+          +" wait avg %.1f ms max %.1f ms; render avg %.1f ms max %.1f ms",
+        queued, running, submitted, rejected, timedOut, interrupted, completed, failed, bytes,
+        waitNanos/1e6/started, maxWaitNanos/1e6, renderNanos/1e6/started, maxRenderNanos/1e6
+      );
+    }
+  }
+
+  ////////////////
+  // INTERNALS: //
+  ////////////////
+
+  /** Gets a permit if one is free and no one is waiting for it, without waiting. */
+  private boolean tryAcquire() {
+    try {
+      return permits.tryAcquire(0, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /** Waits for a permit; if it can't get one, closes <code>out</code>, fails <code>result</code> &amp; returns false. */
+  private boolean await(long maxWaitNanos, OutputStream out, CompletableFuture<Long> result) {
+    Exception failure=null;
+    try {
+      if (maxWaitNanos<=0)
+        permits.acquire();
+      else
+      if (!permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+        timedOut.incrementAndGet();
+        failure=new RejectedExecutionException("Waited more than "+(maxWaitNanos/1000000)+" ms to start");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      interrupted.incrementAndGet();
+      failure=e;
+    } finally {
+      queued.decrementAndGet();
+    }
+    if (failure==null)
+      return true;
+    ReportExecutor.closeAfterFailure(out, failure);
+    result.completeExceptionally(failure);
+    return false;
+  }
+
+  /**
+   * Renders, then releases our permit if <code>heavy</code> and updates the metrics, all before completing
+   * <code>result</code>, so that whoever is waiting for it sees them up to date.
+   */
+  private void render(
+      ReportExecutor.Job job, OutputStream out, boolean heavy, long submitted, PageInfo pageInfo,
+      WriterInfo writerInfo, CompletableFuture<Long> result
+    ) {
+    long start=System.nanoTime();
+    waitNanos.addAndGet(start-submitted);
+    maxWait.accumulateAndGet(start-submitted, Math::max);
+    running.incrementAndGet();
+    ReportExecutor.CountingOutputStream counter=new ReportExecutor.CountingOutputStream(out);
+    Throwable failure=null;
+    try {
+      try (SimplePDF pdf=new SimplePDF(counter, pageInfo, writerInfo)) {
+        job.print(pdf);
+      } finally {
+        counter.close();
+      }
+    } catch (Throwable e) {
+      failure=e;
+    } finally {
+      if (heavy)
+        permits.release();
+      long nanos=System.nanoTime()-start;
+      renderNanos.addAndGet(nanos);
+      maxRender.accumulateAndGet(nanos, Math::max);
+      running.decrementAndGet();
+    }
+    if (failure!=null) {
+      failed.incrementAndGet();
+      result.completeExceptionally(failure);
+    }
+    else {
+      completed.incrementAndGet();
+      bytes.addAndGet(counter.count);
+      result.complete(counter.count);
+    }
+  }
+
+  /**
+   * Uses <code>Executors.newVirtualThreadPerTaskExecutor()</code> when running on Java 21 or later; we're
+   * compiled for older versions, so it has to be looked up.
+   */
+  private static ExecutorService newThreadPerTaskExecutor() {
+    try {
+      return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (Exception e) {
+      return Executors.newCachedThreadPool(ReportExecutor.daemonThreads("ReportService"));
+    }
+  }
+}
@@ -0,0 +1,11 @@
+package org.tmotte.pdfrpt.report;
+
+/**
+ * Turns one row of data - a database record, a line of a file and so forth - into the ReportItem that shows it.
+ * @see Report#addRows(java.util.Iterator, RowRenderer, PageCount, ReportItem, ReportItem)
+ */
+@FunctionalInterface
+public interface RowRenderer<T> {
+  /** Creates the ReportItem for <code>row</code>. */
+  public ReportItem render(T row) throws Exception;
+}
@@ -0,0 +1,303 @@
+package org.tmotte.pdfrpt.report;
+import com.itextpdf.text.Document;
+import com.itextpdf.text.io.RandomAccessSourceFactory;
+import com.itextpdf.text.pdf.PdfCopy;
+import com.itextpdf.text.pdf.PdfImportedPage;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.PdfSmartCopy;
+import com.itextpdf.text.pdf.RandomAccessFileOrArray;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.tmotte.pdfrpt.PageInfo;
+import org.tmotte.pdfrpt.SimplePDF;
+import org.tmotte.pdfrpt.WriterInfo;
+
+/**
+ * Generates one very large report on several threads at once: the rows are split into shards of
+ * <code>setShardSize()</code> rows, each shard is printed to its own PDF on a pool thread, and the shards are
+ * then merged in order into a single document with iText's PdfSmartCopy, which also shares identical resources
+ * (images, templates, fonts) that the shards embedded separately.
+ * <p>Each shard gets its own SimplePDF and should build its own Report, header &amp; footer, just as a
+ * ReportExecutor job would; fonts should be frozen before being shared. Since a shard can't know what page it
+ * starts on, don't use <code>AbstractText.REPLACE_CURR_PAGE</code> or <code>REPLACE_PAGE_COUNT</code> in shards;
+ * instead use <code>setPageStamper()</code> to have "Page X of Y" drawn onto every page while merging.</p>
+ * <p>Every shard starts on a new page, so its last page is usually partly empty; keep shards large compared to
+ * a page. Also, a font embedded by <code>FontInfo.loadFont()</code> is subset separately by each shard, and
+ * different subsets can't be shared; a built-in font such as the default Helvetica avoids that cost.</p>
+ * <p>Example:</p><pre>
+    final FontInfo font=new FontInfo().setFontSize(9).freeze();
+    ShardedReport sharded=new ShardedReport(Runtime.getRuntime().availableProcessors())
+      .setPageInfo(pageInfo)
+      .setPageStamper(
+        new PageStamper(pageInfo, font, "Page "+PText.REPLACE_CURR_PAGE+" of "+PText.REPLACE_PAGE_COUNT)
+          .setXY(pageInfo.getWidth(), pageInfo.getHeight()+10).rightAlign()
+      );
+    int pages=sharded.print(rows, (pdf, shardRows, first)-&gt;{
+      Report report=new Report(pdf).setStreaming(pdf);
+      PageCount pageCount=new PageCount();
+      PText header=new PText(font, "Audit");
+      report.add(header);
+      report.addRows(shardRows.iterator(), row-&gt;printRow(font, row), pageCount, null, header);
+      report.print(pdf);
+    }, new FileOutputStream("audit.pdf"));
+    </pre>
+ * @see ReportExecutor
+ * @see PageStamper
+ */
+public class ShardedReport {
+
+  /** Prints one shard. The SimplePDF is closed by ShardedReport when the shard returns. */
+  public interface Shard<T> {
+    /**
+     * @param rows This shard's rows.
+     * @param first The index of <code>rows.get(0)</code> in the List given to <code>ShardedReport.print()</code>.
+     */
+    public void print(SimplePDF pdf, List<T> rows, int first) throws Exception;
+  }
+
+  private final ExecutorService service;
+  private PageInfo pageInfo=new PageInfo();
+  private WriterInfo writerInfo=new WriterInfo();
+  private int shardSize=5000;
+  private boolean spooled=false;
+  private PageStamper pageStamper;
+
+  ///////////////////
+  // CONSTRUCTORS: //
+  ///////////////////
+
+  /** Creates a ShardedReport with its own pool of <code>threads</code> daemon threads. */
+  public ShardedReport(int threads) {
+    this(ReportExecutor.newPool(threads, "ShardedReport"));
+  }
+  /** Creates a ShardedReport that prints its shards on <code>service</code>. */
+  public ShardedReport(ExecutorService service) {
+    this.service=service;
+  }
+
+  /** Sets the page size &amp; margins used for every shard; the default is <code>new PageInfo()</code>. */
+  public ShardedReport setPageInfo(PageInfo pageInfo) {
+    this.pageInfo=pageInfo;
+    return this;
+  }
+  /**
+   * Sets the compression &amp; PDF version settings used for every shard and for the merged document; the
+   * default is <code>new WriterInfo()</code>.
+   */
+  public ShardedReport setWriterInfo(WriterInfo writerInfo) {
+    this.writerInfo=writerInfo;
+    return this;
+  }
+  /** Sets the number of rows per shard; the default is 5000. */
+  public ShardedReport setShardSize(int rows) {
+    if (rows<1)
+      throw new RuntimeException("Shard size must be at least 1: "+rows);
+    this.shardSize=rows;
+    return this;
+  }
+  /**
+   * When true, shards are written to temporary files instead of memory until they are merged, so that memory
+   * use doesn't grow with the size of the report. The default is false.
+   */
+  public ShardedReport setSpooled(boolean spooled) {
+    this.spooled=spooled;
+    return this;
+  }
+  /**
+   * Stamps every page of the merged document as it is copied, with its page number in the whole document;
+   * <code>pageStamper</code> should use the same PageInfo as the shards. The default is null, for none.
+   */
+  public ShardedReport setPageStamper(PageStamper pageStamper) {
+    this.pageStamper=pageStamper;
+    return this;
+  }
+
+  /** Shuts down the underlying ExecutorService, letting any shards in progress finish. */
+  public void shutdown() {
+    service.shutdown();
+  }
+
+  ////////////
+  // PRINT: //
+  ////////////
+
+  /**
+   * Prints <code>rows</code> in shards, on as many threads as are available, and merges them in order into one
+   * PDF written to <code>out</code>, which is then closed, even if this fails. If any shard fails, the others are
+   * cancelled as soon as it does, and its exception is thrown.
+   * @param rows Must not change until this returns; every shard gets a <code>subList()</code> of it.
+   * @return The number of pages in the merged document.
+   */
+  public <T> int print(List<T> rows, final Shard<T> shard, OutputStream out) throws Exception {
+    final PageInfo pageInfo=this.pageInfo;
+    final WriterInfo writerInfo=this.writerInfo;
+    final boolean spooled=this.spooled;
+    final PageStamper pageStamper=this.pageStamper;
+    final Parts parts=new Parts();
+    int count=Math.max(1, (rows.size()+shardSize-1)/shardSize);
+    CompletionService<Part> completion=new ExecutorCompletionService<Part>(service);
+    List<Future<Part>> futures=new ArrayList<Future<Part>>(count);
+    try {
+      for (int i=0; i<count; i++) {
+        final int index=i, first=i*shardSize;
+        final List<T> shardRows=rows.subList(first, Math.min(first+shardSize, rows.size()));
+        futures.add(completion.submit(()->{
+          if (!parts.begin())
+            return null;
+          try {
+            Part part=new Part(index, spooled ?Files.createTempFile("pdfrpt-shard", ".pdf") :null);
+            try {
+              try (SimplePDF pdf=new SimplePDF(part.open(), pageInfo, writerInfo)) {
+                shard.print(pdf, shardRows, first);
+              }
+              part.read();
+            } catch (Exception e) {
+              part.close();
+              throw e;
+            }
+            parts.add(part);
+            return part;
+          } finally {
+            parts.end();
+          }
+        }));
+      }
+      //Taken as they finish, so that the first failure cancels the rest right away; merged in order:
+      Part[] done=new Part[count];
+      int total=0;
+      for (int i=0; i<count; i++)
+        try {
+          Part part=completion.take().get();
+          done[part.index]=part;
+          total+=part.reader.getNumberOfPages();
+        } catch (ExecutionException e) {
+          Throwable cause=e.getCause();
+          if (cause instanceof Error)
+            throw (Error)cause;
+          throw (Exception)cause;
+        }
+      merge(Arrays.asList(done), total, writerInfo, pageStamper, out);
+      return total;
+    } catch (Throwable t) {
+      //merge() only closes out once the document is finished:
+      ReportExecutor.closeAfterFailure(out, t);
+      throw t;
+    } finally {
+      for (Future<Part> f: futures)
+        f.cancel(true);
+      parts.close();
+    }
+  }
+
+  ////////////////
+  // INTERNALS: //
+  ////////////////
+
+  private static void merge(
+      List<Part> parts, int total, WriterInfo writerInfo, PageStamper pageStamper, OutputStream out
+    ) throws Exception {
+    Document document=new Document();
+    PdfSmartCopy copy=new PdfSmartCopy(document, out);
+    writerInfo.apply(copy);
+    document.open();
+    int page=0;
+    for (Part part: parts) {
+      PdfReader reader=part.reader;
+      for (int p=1; p<=reader.getNumberOfPages(); p++) {
+        PdfImportedPage imported=copy.getImportedPage(reader, p);
+        page++;
+        if (pageStamper!=null) {
+          PdfCopy.PageStamp stamp=copy.createPageStamp(imported);
+          pageStamper.stamp(stamp.getOverContent(), page, total);
+          stamp.alterContents();
+        }
+        copy.addPage(imported);
+      }
+      copy.freeReader(reader);
+      part.close();
+    }
+    document.close();
+  }
+
+  /** One shard's PDF, in memory or in a temporary file, and a reader for it once it's finished. */
+  private static class Part {
+    final int index;
+    final Path file;
+    ByteArrayOutputStream bytes;
+    PdfReader reader;
+    Part(int index, Path file) {
+      this.index=index;
+      this.file=file;
+    }
+    OutputStream open() throws Exception {
+      return file!=null ?Files.newOutputStream(file) :(bytes=new ByteArrayOutputStream());
+    }
+    /** Opens the reader; only the cross-reference table is read until pages are copied. */
+    void read() throws Exception {
+      RandomAccessSourceFactory factory=new RandomAccessSourceFactory();
+      reader=new PdfReader(
+        new RandomAccessFileOrArray(
+          file!=null ?factory.createBestSource(file.toString()) :factory.createSource(bytes.toByteArray())
+        ),
+        null
+      );
+      bytes=null;
+    }
+    void close() {
+      if (reader!=null)
+        reader.close();
+      reader=null;
+      bytes=null;
+      if (file!=null)
+        file.toFile().delete();
+    }
+  }
+
+  /**
+   * Keeps track of running shards &amp; finished Parts, so that <code>print()</code> can wait for shards that
+   * were cancelled while running and close every Part before it returns.
+   */
+  private static class Parts {
+    private final List<Part> list=new ArrayList<Part>();
+    private int running=0;
+    private boolean closed=false;
+    /** Returns false if we're already closed, in which case the shard should not be printed. */
+    synchronized boolean begin() {
+      if (closed)
+        return false;
+      running++;
+      return true;
+    }
+    synchronized void end() {
+      running--;
+      notifyAll();
+    }
+    synchronized void add(Part part) {
+      if (closed)
+        part.close();
+      else
+        list.add(part);
+    }
+    synchronized void close() throws InterruptedException {
+      closed=true;
+      try {
+        while (running>0)
+          wait();
+      } finally {
+        for (Part part: list)
+          part.close();
+        list.clear();
+      }
+    }
+  }
+}
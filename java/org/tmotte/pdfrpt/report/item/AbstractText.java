@@ -1,4 +1,5 @@
 package org.tmotte.pdfrpt.report.item;
+import org.tmotte.pdfrpt.report.DisplayList;
 import org.tmotte.pdfrpt.report.PageCount;
 import org.tmotte.pdfrpt.report.ReportItem;
 import org.tmotte.pdfrpt.FontInfo;
@@ -14,6 +15,8 @@ public abstract class AbstractText extends ReportItem {
    * Embed this String in the text of a PText or PTextLines instance and it will be replaced with the total 
    * page count for the report. This requires the use of a PageCount object. 
    * @see #setPageCount(PageCount)
+   * @see PageCount#setDeferred(boolean)
+   * @see PageCount#setStamped(boolean)
    */
   public final static String REPLACE_PAGE_COUNT="##PageCount##";
   /** 
@@ -35,6 +38,9 @@ public abstract class AbstractText extends ReportItem {
   protected PageCount pageCounter;
   protected short currPage=0;
 
+  /** The bytes taken by AbstractText's own fields, for <code>estimateRetainedBytes()</code>. */
+  protected final static int TEXT_FIELDS=2*REFERENCE+2+2;
+
   protected AbstractText(FontInfo fontInfo) {
     this.fontInfo=fontInfo;
   }
@@ -52,10 +58,23 @@ public abstract class AbstractText extends ReportItem {
     else
       pdf.draw(t);
   }
+  /**
+   * The DisplayList equivalent of <code>print(pdf, t)</code>, where <code>x,y</code> are the iText coordinates
+   * <code>pdf</code> would have.
+   * @see org.tmotte.pdfrpt.SimplePDF#getITextX()
+   */
+  protected void compile(DisplayList list, String t, float x, float y) {
+    if (rightAlign)
+      x-=fontInfo.getWidth(t);
+    else
+    if (center)
+      x+=(getWidth()-fontInfo.getWidth(t))/2;
+    list.addText(x, y, fontInfo, t);
+  }
   protected String replacePageVars(String t) {
     int x;
     x=t.indexOf(REPLACE_PAGE_COUNT);
-    if (x>-1) 
+    if (x>-1 && !pageCounter.isDeferred()) 
       t=t.replace(REPLACE_PAGE_COUNT, String.valueOf(pageCounter.getTotal()));
     x=t.indexOf(REPLACE_CURR_PAGE);
     if (x>-1) 
@@ -63,6 +82,61 @@ public abstract class AbstractText extends ReportItem {
     return t;
   }
 
+  /**
+   * Indicates whether <code>t</code> should be left out because it uses page variables and our PageCount leaves
+   * them to a PageStamper.
+   * @see PageCount#setStamped(boolean)
+   */
+  protected boolean isStamped(String t) {
+    return pageCounter!=null && pageCounter.isStamped()
+      && (t.indexOf(REPLACE_CURR_PAGE)>-1 || t.indexOf(REPLACE_PAGE_COUNT)>-1);
+  }
+  /**
+   * Indicates whether <code>t</code> still contains <code>REPLACE_PAGE_COUNT</code> after <code>replacePageVars()</code>,
+   * because our PageCount is deferred.
+   * @see PageCount#setDeferred(boolean)
+   */
+  protected boolean hasDeferredTotal(String t) {
+    return pageCounter!=null && pageCounter.isDeferred() && t.indexOf(REPLACE_PAGE_COUNT)>-1;
+  }
+  /**
+   * Draws <code>t</code> with each <code>REPLACE_PAGE_COUNT</code> drawn as a placeholder via
+   * <code>SimplePDF.drawPageTotal()</code>. As with <code>SimplePDF.drawToLeft()</code>, right-aligned
+   * text is expected to have <code>pdf</code>'s X coordinate already set to the right edge.
+   * @see org.tmotte.pdfrpt.SimplePDF#drawPageTotal()
+   */
+  protected void drawDeferredTotal(SimplePDF pdf, String t) {
+    FontInfo fi=pdf.getFontInfo();
+    float totalWidth=pdf.getPageTotalWidth(),
+          width=0;
+    int len=REPLACE_PAGE_COUNT.length();
+    for (int start=0, end; start<=t.length(); start=end+len){
+      end=t.indexOf(REPLACE_PAGE_COUNT, start);
+      if (end==-1)
+        end=t.length();
+      else
+        width+=totalWidth;
+      width+=fi.getWidth(t.substring(start, end));
+    }
+
+    float x=pdf.getX();
+    if (rightAlign)
+      pdf.moveX(-width);
+    else
+    if (center)
+      pdf.moveX((getWidth()-width)/2);
+    for (int start=0, end; start<=t.length(); start=end+len){
+      end=t.indexOf(REPLACE_PAGE_COUNT, start);
+      String part=t.substring(start, end==-1 ?t.length() :end);
+      if (part.length()>0)
+        pdf.drawAndMoveX(part);
+      if (end==-1)
+        break;
+      pdf.drawPageTotal().moveX(totalWidth);
+    }
+    pdf.setX(x);
+  }
+
   /** 
    * Sets the PageCount instance for this instance. For convenience this method is overridden by both PText and PTextLines.
    * @see #REPLACE_PAGE_COUNT
@@ -3,6 +3,7 @@ import com.itextpdf.text.Image;
 import java.io.InputStream;
 import java.net.URL;
 import javax.imageio.ImageIO;
+import org.tmotte.pdfrpt.report.DisplayList;
 import org.tmotte.pdfrpt.report.ReportItem;
 import org.tmotte.pdfrpt.SimplePDF;
 
@@ -16,6 +17,8 @@ import org.tmotte.pdfrpt.SimplePDF;
  */
 public class PImage extends ReportItem {
   Image image;
+  /** True when image is known to be shared with other PImages, and so its data isn't counted as ours. */
+  boolean shared=false;
 
 
   /**
@@ -41,11 +44,21 @@ public class PImage extends ReportItem {
     this(SimplePDF.loadImage(url));
   }
 
+  /**
+   * A shortcut to <code>new PImage(pdf.getImageCache().getImage(url))</code>; use this when the same image
+   * appears more than once in a document, so that it is only loaded &amp; embedded once.
+   * @see org.tmotte.pdfrpt.ImageCache
+   */
+  public PImage(SimplePDF pdf, URL url) throws Exception {
+    this(pdf.getImageCache().getImage(url));
+    shared=true;
+  }
   /**
    * Creates a copy of <code>other</code>, including a copy of the image it contains.
    */
   public PImage(PImage other) {
     this(Image.getInstance(other.image));
+    shared=true;
   }
 
   /**
@@ -112,4 +125,27 @@ public class PImage extends ReportItem {
   public void print(SimplePDF pdf) throws Exception {
     pdf.draw(image);
   }
+  /**
+   * Compiles this PImage as a single image.
+   * @see ReportItem#compile(DisplayList, SimplePDF)
+   */
+  public @Override void compile(DisplayList list, SimplePDF pdf) {
+    list.addImage(pdf.getITextX(), pdf.getITextY(), image);
+  }
+
+  /**
+   * Counts this PImage, its iText Image, and the Image's data unless that is shared: images from an ImageCache
+   * (<code>PImage(SimplePDF, URL)</code>) and copies made with <code>PImage(PImage)</code> share their data, which
+   * is not counted. Other PImages made from the same iText Image are each counted in full.
+   * @see ReportItem#estimateRetainedBytes()
+   */
+  public @Override long estimateRetainedBytes() {
+    long bytes=estimateObject(ITEM_FIELDS+REFERENCE+1)+IMAGE_OBJECT;
+    byte[] data=image.getRawData();
+    if (!shared && data!=null)
+      bytes+=estimateArray(data.length, 1);
+    return bytes;
+  }
+  /** Roughly the size of an iText Image object itself, without its data. */
+  private final static int IMAGE_OBJECT=256;
 }
\ No newline at end of file
@@ -1,4 +1,6 @@
 package org.tmotte.pdfrpt.report.item;
+import org.tmotte.pdfrpt.ColorCache;
+import org.tmotte.pdfrpt.report.DisplayList;
 import org.tmotte.pdfrpt.report.ReportItem;
 import org.tmotte.pdfrpt.SimplePDF;
 import com.itextpdf.text.BaseColor;
@@ -42,11 +44,11 @@ public class PLine extends ReportItem {
    * Sets the color using Java's standard Color object. This is passed directly to iText's BaseColor object.
    */
   public PLine setColor(java.awt.Color color) {
-    return setColor(new BaseColor(color.getRGB()));
+    return setColor(ColorCache.get(color));
   }
   /** Sets the color of the line using RGB values; each parameter should be in the range of 0-255. */
   public PLine setColor(int red, int green, int blue) {
-    return setColor(new BaseColor(red, green, blue));
+    return setColor(ColorCache.get(red, green, blue));
   }
   /** Sets the color of the line. */
   public PLine setColor(BaseColor bc) {
@@ -91,23 +93,36 @@ public class PLine extends ReportItem {
     pop(pdf);
   }
 
+  /**
+   * Compiles this PLine as a single line.
+   * @see ReportItem#compile(DisplayList, SimplePDF)
+   */
+  public @Override void compile(DisplayList list, SimplePDF pdf) {
+    list.addLine(pdf.getITextX(), pdf.getITextY(), xDist, yDist, lineWidth, color);
+  }
+
+  /**
+   * Counts this PLine only; its color is shared.
+   * @see ReportItem#estimateRetainedBytes()
+   */
+  public @Override long estimateRetainedBytes() {
+    return estimateObject(ITEM_FIELDS+3*4+REFERENCE);
+  }
+
   ////////////////
   // INTERNALS: //
   ////////////////
 
 
   private void pushPrint(SimplePDF pdf) {
-    if (lineWidth!=pdf.getLineWidth()||color!=null){
-      pdf.saveState();
-      if (lineWidth!=0)
-        pdf.setLineWidth(lineWidth);
-      if (color!=null)
-        pdf.setColor(color);
-    }
+    pdf.saveState();
+    if (lineWidth!=0)
+      pdf.setLineWidth(lineWidth);
+    if (color!=null)
+      pdf.setColor(color);
   }
   private void pop(SimplePDF pdf) {
-    if (pdf.isStateSaved())
-      pdf.restoreState();
+    pdf.restoreState();
   }
 
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package org.tmotte.pdfrpt.report.item;
 import java.awt.Color;
+import org.tmotte.pdfrpt.ColorCache;
+import org.tmotte.pdfrpt.report.DisplayList;
 import org.tmotte.pdfrpt.report.ReportItem;
 import org.tmotte.pdfrpt.report.PGroup;
 import org.tmotte.pdfrpt.SimplePDF;
@@ -46,7 +48,7 @@ public class PRect extends ReportItem {
    * Sets the color using Java's standard Color object. This is passed directly to iText's BaseColor object. The color applies to both outlined and filled rectangles.
    */
   public PRect setColor(Color color) {
-    return setColor(new BaseColor(color.getRGB()));
+    return setColor(ColorCache.get(color));
   }
   /** Sets the color of the rectangle, both for fill and outline rectangles. The color applies to both outlined and filled rectangles.*/
   public PRect setColor(BaseColor bc) {
@@ -58,7 +60,7 @@ public class PRect extends ReportItem {
    * are in the range of 0-255. The color applies to both outlined and filled rectangles.
    */
   public PRect setColor(int red, int green, int blue) {
-    return setColor(new BaseColor(red, green, blue));
+    return setColor(ColorCache.get(red, green, blue));
   }
   /**
    * Obtains the color used to draw the rectangle.
@@ -195,23 +197,42 @@ public class PRect extends ReportItem {
     pop(pdf);
   }
 
+  /**
+   * Compiles this PRect as a single rectangle.
+   * @see ReportItem#compile(DisplayList, SimplePDF)
+   */
+  public @Override void compile(DisplayList list, SimplePDF pdf) {
+    float x=pdf.getITextX(), y=pdf.getITextY();
+    if (offsetBL+offsetTL+offsetBR+offsetTR>0)
+      list.addRoundedRect(
+        x, y, getWidth(), getHeight(), offsetTL, offsetTR, offsetBR, offsetBL, !outline, lineWidth, color
+      );
+    else
+      list.addRect(x, y, getWidth(), getHeight(), !outline, lineWidth, color);
+  }
+
+  /**
+   * Counts this PRect only; its color is shared.
+   * @see ReportItem#estimateRetainedBytes()
+   */
+  public @Override long estimateRetainedBytes() {
+    return estimateObject(ITEM_FIELDS+5*4+REFERENCE+1);
+  }
+
   ////////////////
   // INTERNALS: //
   ////////////////
 
 
   private void push(SimplePDF pdf) {
-    if (lineWidth!=pdf.getLineWidth()||color!=null){
-      pdf.saveState();
-      if (lineWidth!=0)
-        pdf.setLineWidth(lineWidth);
-      if (color!=null)
-        pdf.setColor(color);
-    }
+    pdf.saveState();
+    if (lineWidth!=0)
+      pdf.setLineWidth(lineWidth);
+    if (color!=null)
+      pdf.setColor(color);
   }
   private void pop(SimplePDF pdf) {
-    if (pdf.isStateSaved())
-      pdf.restoreState();
+    pdf.restoreState();
   }
 
 }
\ No newline at end of file
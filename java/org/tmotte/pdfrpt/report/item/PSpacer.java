@@ -1,4 +1,5 @@
 package org.tmotte.pdfrpt.report.item;
+import org.tmotte.pdfrpt.report.DisplayList;
 import org.tmotte.pdfrpt.report.ReportItem;
 import org.tmotte.pdfrpt.SimplePDF;
 
@@ -9,4 +10,6 @@ import org.tmotte.pdfrpt.SimplePDF;
 public class PSpacer extends ReportItem {
   /** Does absolutely nothing. */
   public void print(SimplePDF pdf) throws Exception{}
+  /** Also does absolutely nothing. */
+  public @Override void compile(DisplayList list, SimplePDF pdf) {}
 }
\ No newline at end of file
@@ -1,4 +1,5 @@
 package org.tmotte.pdfrpt.report.item;
+import org.tmotte.pdfrpt.report.DisplayList;
 import org.tmotte.pdfrpt.report.PageCount;
 import org.tmotte.pdfrpt.report.ReportItem;
 import org.tmotte.pdfrpt.FontInfo;
@@ -113,6 +114,8 @@ public class PText extends AbstractText {
    * @see #setPageCount(PageCount)
    */
   public void print(SimplePDF pdf) {
+    if (isStamped(text))
+      return;
     pushPrint(pdf);
 
     //Build text:
@@ -121,6 +124,12 @@ public class PText extends AbstractText {
       t=replacePageVars(t);
 
     //Now print:
+    if (hasDeferredTotal(t)) {
+      if (rightAlign)
+        pdf.moveX(getRight()-getLeft());
+      drawDeferredTotal(pdf, t);
+    }
+    else
     if (rightAlign)
       pdf.moveX(getRight()-getLeft())
          .drawToLeft(t);
@@ -133,7 +142,34 @@ public class PText extends AbstractText {
     pop(pdf);
   }
 
+  /**
+   * Compiles this PText as simple text, unless it has a PageCount, in which case the page variables must be
+   * replaced every time it is printed.
+   * @see ReportItem#compile(DisplayList, SimplePDF)
+   */
+  public @Override void compile(DisplayList list, SimplePDF pdf) throws Exception {
+    if (pageCounter!=null) {
+      list.addLive(pdf.getITextX(), pdf.getITextY(), this);
+      return;
+    }
+    float x=pdf.getITextX();
+    if (rightAlign)
+      x+=getRight()-getLeft();
+    compile(list, text, x, pdf.getITextY());
+  }
+
+
+  /////////////
+  // MEMORY: //
+  /////////////
 
+  /**
+   * Counts this PText &amp; its text.
+   * @see ReportItem#estimateRetainedBytes()
+   */
+  public @Override long estimateRetainedBytes() {
+    return estimateObject(ITEM_FIELDS+TEXT_FIELDS+REFERENCE)+estimateString(text);
+  }
 
 
   ////////////////
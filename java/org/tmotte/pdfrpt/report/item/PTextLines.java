@@ -1,9 +1,10 @@
 package org.tmotte.pdfrpt.report.item;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Pattern;
 import org.tmotte.common.text.StringChunker;
 import org.tmotte.pdfrpt.FontInfo;
+import org.tmotte.pdfrpt.report.DisplayList;
 import org.tmotte.pdfrpt.report.PageCount;
 import org.tmotte.pdfrpt.report.ReportItem;
 import org.tmotte.pdfrpt.SimplePDF;
@@ -38,14 +39,13 @@ public class PTextLines extends AbstractText {
     float lineHeight=font.getTextLineHeight();
     if (text.indexOf((char)13)>-1 || text.indexOf((char)10)>-1){
       StringChunker sc=new StringChunker(text);
-      List<String> newLines=new LinkedList<String>();
+      List<String> newLines=new ArrayList<String>();
       while (sc.findOrFinish(breakPatt)){
         String s=sc.getUpTo();
         if (!"".equals(s)){
-          List<String> fit=font.getFit(s, width);
-          addHeight(fit.size()*lineHeight);
-          for (String ttt: fit)
-            newLines.add(ttt);
+          int before=newLines.size();
+          font.getFit(s, width, newLines);
+          addHeight((newLines.size()-before)*lineHeight);
         }
       }
       lines=getLines(newLines);
@@ -165,8 +165,17 @@ public class PTextLines extends AbstractText {
       pdf.moveX(getRight()-getLeft());
     float wide=getWidth();
     for (String s: lines){
+      if (isStamped(s)) {
+        pdf.lineFeed();
+        continue;
+      }
       if (pageCounter!=null)
         s=replacePageVars(s);
+      if (hasDeferredTotal(s)) {
+        drawDeferredTotal(pdf, s);
+        pdf.lineFeed();
+      }
+      else
       if (r)
         pdf.drawToLeft(s).lineFeed();
       else
@@ -177,8 +186,43 @@ public class PTextLines extends AbstractText {
     }
     pop(pdf);
   }
-  
-  
+
+  /**
+   * Similar to <code>PText.compile()</code>, but compiles multiple lines.
+   * @see PText#compile(DisplayList, SimplePDF)
+   */
+  public @Override void compile(DisplayList list, SimplePDF pdf) throws Exception {
+    if (pageCounter!=null) {
+      list.addLive(pdf.getITextX(), pdf.getITextY(), this);
+      return;
+    }
+    float x=pdf.getITextX(),
+          y=pdf.getITextY();
+    if (rightAlign)
+      x+=getRight()-getLeft();
+    for (String s: lines){
+      compile(list, s, x, y);
+      y-=fontInfo.getTextLineHeight();
+    }
+  }
+
+
+  /////////////
+  // MEMORY: //
+  /////////////
+
+  /**
+   * Counts this PTextLines, its array of lines &amp; each line.
+   * @see ReportItem#estimateRetainedBytes()
+   */
+  public @Override long estimateRetainedBytes() {
+    long bytes=estimateObject(ITEM_FIELDS+TEXT_FIELDS+REFERENCE)+estimateArray(lines.length, REFERENCE);
+    for (String s: lines)
+      bytes+=estimateString(s);
+    return bytes;
+  }
+
+
   ////////////////
   // DEBUGGING: //
   ////////////////
@@ -0,0 +1,25 @@
+package org.tmotte.pdfrpt.test;
+import com.itextpdf.text.pdf.PdfReader;
+import java.util.Arrays;
+
+/** Checks on finished PDFs that several tests share. */
+public class PDFAssert {
+
+  /**
+   * Throws a RuntimeException unless <code>actual</code> has as many pages as <code>expected</code>, each with
+   * exactly the same content stream; the message starts with <code>label</code>.
+   */
+  public static void assertSameContent(byte[] expected, byte[] actual, String label) throws Exception {
+    PdfReader e=new PdfReader(expected), a=new PdfReader(actual);
+    try {
+      if (e.getNumberOfPages()!=a.getNumberOfPages())
+        throw new RuntimeException(label+": got "+a.getNumberOfPages()+" pages, expected "+e.getNumberOfPages());
+      for (int p=1; p<=e.getNumberOfPages(); p++)
+        if (!Arrays.equals(e.getPageContent(p), a.getPageContent(p)))
+          throw new RuntimeException(label+": page "+p+" differs");
+    } finally {
+      e.close();
+      a.close();
+    }
+  }
+}
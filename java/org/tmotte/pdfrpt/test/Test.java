@@ -58,15 +58,27 @@ public class Test {
   static {
     // simplepdf.*:
     allTests.add(()->new TestImage());
+    allTests.add(()->new TestImageLoading());
+    allTests.add(()->new TestWriterInfo());
+    allTests.add(()->new TestChannelOutput());
+    allTests.add(()->new TestColorState());
+    allTests.add(()->new TestStateStack());
+    allTests.add(()->new TestTextObjects());
     allTests.add(()->new TestRoundRect());
 
     // performance.*:
     allTests.add(()->new TestLoad());
+    allTests.add(()->new TestBench());
+    allTests.add(()->new TestMemory());
+    allTests.add(()->new TestJfrEvents());
 
     // report.*:
     allTests.add(()->new TestCentered());
     allTests.add(()->new TestFont());
     allTests.add(()->new TestFontSizes());
+    allTests.add(()->new TestFontWidths());
+    allTests.add(()->new TestLineBreaker());
+    allTests.add(()->new TestFontCatalog());
     allTests.add(()->new TestOffsets());
     allTests.add(()->new TestPImage());
 
@@ -80,6 +92,18 @@ public class Test {
     allTests.add(()->new TestMultipage());
     allTests.add(()->new TestSplit());
     allTests.add(()->new TestState());
+    allTests.add(()->new TestStreaming());
+    allTests.add(()->new TestReportExecutor());
+    allTests.add(()->new TestAddAllVertical());
+    allTests.add(()->new TestDisplayList());
+    allTests.add(()->new TestPTemplate());
+    allTests.add(()->new TestImageCache());
+    allTests.add(()->new TestRenderStats());
+    allTests.add(()->new TestAddRows());
+    allTests.add(()->new TestShardedReport());
+    allTests.add(()->new TestPageStamper());
+    allTests.add(()->new TestReportService());
+    allTests.add(()->new TestMemoryEstimate());
   }
 
 }
\ No newline at end of file
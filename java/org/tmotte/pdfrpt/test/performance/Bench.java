@@ -0,0 +1,93 @@
+package org.tmotte.pdfrpt.test.performance;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+/**
+ * A minimal benchmark harness in the spirit of JMH: each benchmark is run for a number of timed warmup
+ * iterations, then for a number of timed measurement iterations, and we report throughput (ops/s, with
+ * standard deviation), allocation per operation and garbage collections during measurement.
+ * <p>Settings come from system properties: <code>bench.warmup</code> &amp; <code>bench.iterations</code> (number of
+ * iterations, defaults 3 &amp; 5) and <code>bench.time</code> (milliseconds per iteration, default 1000).
+ * </p>
+ * @see TestBench
+ */
+public class Bench {
+
+  /** A single benchmark operation; the result is consumed so that the JIT cannot discard the work. */
+  public interface Op {
+    public Object run() throws Exception;
+  }
+
+  private final int warmups=Integer.getInteger("bench.warmup", 3),
+                    iterations=Integer.getInteger("bench.iterations", 5);
+  private final long iterationNanos=Long.getLong("bench.time", 1000)*1000000L;
+  private final ThreadMXBean threads=ManagementFactory.getThreadMXBean();
+  private final boolean allocSupported=threads instanceof com.sun.management.ThreadMXBean;
+  private final List<GarbageCollectorMXBean> gcs=ManagementFactory.getGarbageCollectorMXBeans();
+  private volatile int sink;
+
+  /** Prints the column headings for <code>run()</code>. */
+  public Bench printHeader() {
+    System.out.println(
+      String.format("%-40s %14s %12s %14s %6s", "Benchmark", "ops/s", "error", "bytes/op", "gcs")
+    );
+    return this;
+  }
+
+  /** Runs <code>op</code> through warmup &amp; measurement and prints one line of results. */
+  public Bench run(String name, Op op) throws Exception {
+    for (int i=0; i<warmups; i++)
+      iterate(op);
+    double[] opsPerSec=new double[iterations];
+    long ops=0, bytes=0, gcCount=0;
+    for (int i=0; i<iterations; i++) {
+      long gcBefore=getGCCount(),
+           allocBefore=getAllocated(),
+           start=System.nanoTime();
+      long count=iterate(op);
+      long elapsed=System.nanoTime()-start;
+      bytes+=getAllocated()-allocBefore;
+      gcCount+=getGCCount()-gcBefore;
+      ops+=count;
+      opsPerSec[i]=count*1e9/elapsed;
+    }
+    double mean=0, dev=0;
+    for (double d: opsPerSec)
+      mean+=d;
+    mean/=iterations;
+    for (double d: opsPerSec)
+      dev+=(d-mean)*(d-mean);
+    dev=iterations>1 ?Math.sqrt(dev/(iterations-1)) :0;
+    System.out.println(
+      String.format(
+        "%-40s %14.3f %12.3f %14s %6d",
+        name, mean, dev, allocSupported ?String.valueOf(bytes/Math.max(ops, 1)) :"n/a", gcCount
+      )
+    );
+    return this;
+  }
+
+  private long iterate(Op op) throws Exception {
+    long count=0, end=System.nanoTime()+iterationNanos;
+    do {
+      Object o=op.run();
+      if (o!=null)
+        sink+=o.hashCode();
+      count++;
+    } while (System.nanoTime()<end);
+    return count;
+  }
+  private long getAllocated() {
+    if (allocSupported)
+      return ((com.sun.management.ThreadMXBean)threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+    return 0;
+  }
+  private long getGCCount() {
+    long total=0;
+    for (GarbageCollectorMXBean gc: gcs)
+      total+=Math.max(0, gc.getCollectionCount());
+    return total;
+  }
+}
@@ -0,0 +1,290 @@
+package org.tmotte.pdfrpt.test.performance;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.tmotte.pdfrpt.ChannelOutputStream;
+import org.tmotte.pdfrpt.FontCatalog;
+import org.tmotte.pdfrpt.FontInfo;
+import org.tmotte.pdfrpt.PageInfo;
+import org.tmotte.pdfrpt.report.item.PText;
+import org.tmotte.pdfrpt.report.item.PTextLines;
+import org.tmotte.pdfrpt.report.DisplayList;
+import org.tmotte.pdfrpt.report.PGroup;
+import org.tmotte.pdfrpt.report.PageCount;
+import org.tmotte.pdfrpt.report.Report;
+import org.tmotte.pdfrpt.report.ShardedReport;
+import org.tmotte.pdfrpt.SimplePDF;
+import org.tmotte.pdfrpt.WriterInfo;
+import org.tmotte.pdfrpt.test.ITest;
+
+/**
+ * Benchmarks for the layout &amp; render hot paths, using the Bench harness. Run with <code>ant bench</code>,
+ * or directly with the names (or name prefixes) of the benchmarks to run as arguments, e.g.
+ * <code>java org.tmotte.pdfrpt.test.performance.TestBench FontInfo</code>.
+ * As an automated test, each benchmark operation is only run once.
+ * @see Bench
+ */
+public class TestBench implements ITest {
+
+  public static void main(String[] args) throws Exception {
+    TestBench tb=new TestBench();
+    Bench bench=new Bench().printHeader();
+    try {
+      for (Named n: tb.getBenchmarks())
+        if (matches(n.name, args)) {
+          bench.run(n.name, n.op);
+          if (n.resultLabel!=null)
+            System.out.println(String.format("%-40s %14s", "  "+n.resultLabel, n.op.run()));
+        }
+    } finally {
+      tb.closeAll();
+    }
+  }
+
+  /** Makes sure every benchmark still runs. */
+  public @Override void test() throws Exception {
+    try {
+      for (Named n: getBenchmarks())
+        n.op.run();
+    } finally {
+      closeAll();
+    }
+  }
+
+  private static boolean matches(String name, String[] args) {
+    if (args.length==0)
+      return true;
+    for (String a: args)
+      if (name.startsWith(a))
+        return true;
+    return false;
+  }
+
+  ///////////////////
+  // BENCHMARKS:   //
+  ///////////////////
+
+  private final static int[] recordCounts={100, 1000, 10000};
+  private final static String paragraph, longToken;
+  static {
+    java.util.Random ran=new java.util.Random(1);
+    StringBuilder sb=new StringBuilder();
+    for (int i=0; i<60; i++)
+      sb.append(i>0 ?" " :"").append(ran.nextInt(100)*ran.nextInt(1000)*ran.nextInt(10000));
+    paragraph=sb.toString();
+    sb.setLength(0);
+    sb.append("https://example.com/");
+    while (sb.length()<2000)
+      sb.append(Integer.toHexString(ran.nextInt()));
+    longToken=sb.toString();
+  }
+
+  private List<Named> getBenchmarks() throws Exception {
+    final FontInfo font=new FontInfo("Test2Reg.ttf", new File("./lib/fonts/nobile.ttf").toURI().toURL())
+      .setFontSize(9);
+    final float width=300;
+    List<Named> list=new ArrayList<>();
+
+    list.add(new Named("FontInfo.getWidth", ()->font.getWidth(paragraph)));
+    list.add(new Named("FontInfo.getFit", ()->font.getFit(paragraph, width)));
+    list.add(new Named("FontInfo.getFit.longToken", ()->font.getFit(longToken, width)));
+    list.add(new Named("PTextLines.new", ()->new PTextLines(font, width, paragraph)));
+
+    final URL fontURL=new File("./lib/fonts/nobile.ttf").toURI().toURL();
+    list.add(new Named("FontInfo.loadFont", ()->FontInfo.loadFont("Test2Reg.ttf", fontURL)));
+    list.add(new Named("FontCatalog.getFont", ()->FontCatalog.getDefault().getFont("Test2Reg.ttf", fontURL)));
+
+    final byte[] jpeg=java.nio.file.Files.readAllBytes(new File("./lib/images/test2.jpg").toPath());
+    list.add(new Named("SimplePDF.loadImage", ()->SimplePDF.loadImage(jpeg)));
+    list.add(new Named("SimplePDF.loadImage.viaImageIO", ()->
+      com.itextpdf.text.Image.getInstance(javax.imageio.ImageIO.read(new java.io.ByteArrayInputStream(jpeg)), null)
+    ));
+
+    final SimplePDF printPDF=open(new SimplePDF(new NullOutputStream(), new PageInfo(PageInfo.LETTER_PORTRAIT, 25)));
+    final PGroup page=makePage(printPDF, font);
+    list.add(new Named("PGroup.print", ()->{
+      page.print(printPDF);
+      printPDF.newPage();
+      return null;
+    }));
+    final SimplePDF renderPDF=open(new SimplePDF(new NullOutputStream(), new PageInfo(PageInfo.LETTER_PORTRAIT, 25)));
+    final DisplayList compiled=DisplayList.compile(page, renderPDF);
+    list.add(new Named("DisplayList.compile", ()->DisplayList.compile(page, renderPDF)));
+    list.add(new Named("DisplayList.render", ()->{
+      compiled.render(renderPDF);
+      renderPDF.newPage();
+      return null;
+    }));
+
+    final SimplePDF drawPDF=open(new SimplePDF(new NullOutputStream(), new PageInfo(PageInfo.LETTER_PORTRAIT, 25)));
+    drawPDF.setFontInfo(font);
+    final int[] drawCount={0};
+    list.add(new Named("SimplePDF.draw(String)", ()->{
+      if (++drawCount[0] % 1000==0)
+        drawPDF.newPage();
+      return drawPDF.draw("Hello 12345 world");
+    }));
+
+    for (final boolean parallel: new boolean[]{false, true})
+      for (final int count: recordCounts)
+        list.add(new Named("TestLoad.makeReport"+(parallel ?".parallel/" :"/")+count, ()->{
+          try (SimplePDF pdf=new SimplePDF(new NullOutputStream(), new PageInfo(PageInfo.LETTER_PORTRAIT, 25))) {
+            new TestLoad().makeReport(pdf, count, parallel);
+          }
+          return null;
+        }));
+
+    //CPU vs. output size:
+    final String[] levelNames={"default", "none", "speed", "best", "best+full"};
+    final WriterInfo[] levels={
+      new WriterInfo(),
+      new WriterInfo().setCompressionLevel(WriterInfo.NO_COMPRESSION),
+      WriterInfo.fastest(),
+      new WriterInfo().setCompressionLevel(WriterInfo.BEST_COMPRESSION),
+      WriterInfo.smallest()
+    };
+    for (int i=0; i<levels.length; i++) {
+      final WriterInfo writerInfo=levels[i];
+      list.add(new Named("TestLoad.makeReport.compression/"+levelNames[i]+"/1000", "output bytes", ()->{
+        NullOutputStream out=new NullOutputStream();
+        try (SimplePDF pdf=new SimplePDF(out, new PageInfo(PageInfo.LETTER_PORTRAIT, 25), writerInfo)) {
+          new TestLoad().makeReport(pdf, 1000);
+        }
+        return out.count;
+      }));
+    }
+
+    //Writing to a file: unbuffered stream vs. channel with pooled direct buffer vs. spooled & transferred:
+    final File outFile=new File("build", "TestBench.output.pdf");
+    list.add(new Named("TestLoad.makeReport.output/stream/1000", ()->{
+      try (SimplePDF pdf=new SimplePDF(new FileOutputStream(outFile), new PageInfo(PageInfo.LETTER_PORTRAIT, 25))) {
+        new TestLoad().makeReport(pdf, 1000);
+      }
+      return null;
+    }));
+    list.add(new Named("TestLoad.makeReport.output/channel/1000", ()->{
+      try (SimplePDF pdf=new SimplePDF(openChannel(outFile), new PageInfo(PageInfo.LETTER_PORTRAIT, 25))) {
+        new TestLoad().makeReport(pdf, 1000);
+      }
+      return null;
+    }));
+    list.add(new Named("TestLoad.makeReport.output/spooled/1000", ()->{
+      try (SimplePDF pdf=new SimplePDF(
+          ChannelOutputStream.spooled(openChannel(outFile)), new PageInfo(PageInfo.LETTER_PORTRAIT, 25)
+        )) {
+        new TestLoad().makeReport(pdf, 1000);
+      }
+      return null;
+    }));
+
+    //One big report in shards, on one thread vs. several:
+    final FontInfo shardFont=new FontInfo().setFontSize(9).freeze();
+    final List<Integer> shardRows=new ArrayList<>();
+    for (int i=0; i<10000; i++)
+      shardRows.add(i);
+    for (final int threads: new int[]{1, Math.max(2, Runtime.getRuntime().availableProcessors())}) {
+      final ShardedReport sharded=new ShardedReport(threads).setShardSize(1000);
+      closeables.add(sharded::shutdown);
+      list.add(new Named("ShardedReport.print/threads/"+threads, "pages", ()->
+        sharded.print(shardRows, (pdf, rows, first)->{
+          Report report=new Report(pdf).setStreaming(pdf);
+          PText header=new PText(shardFont, "Header"), footer=new PText(shardFont, " ");
+          report.add(header);
+          report.addRows(
+            rows.iterator(),
+            row->new PGroup(
+              PGroup.Horizontal,
+              new PText(shardFont, 65, String.valueOf(row)),
+              new PTextLines(shardFont, 300, "Some comments that wrap onto more than one line, as comments often do.")
+            ),
+            new PageCount(), footer, header
+          );
+          report.addFooterAndPrint(footer, pdf);
+        }, new NullOutputStream())
+      ));
+    }
+    return list;
+  }
+
+  private PGroup makePage(SimplePDF pdf, FontInfo font) {
+    Report page=new Report(pdf);
+    for (int i=0; i<30; i++)
+      page.addVertical(
+        new PGroup(
+          PGroup.Horizontal,
+          new PText(font, 65, String.valueOf(i)),
+          new PText(font, 65, "12345").rightAlign(),
+          new PTextLines(font, 300, "Some comments that wrap onto more than one line, as comments often do.")
+        )
+      );
+    return page;
+  }
+
+  ///////////////
+  // HELPERS:  //
+  ///////////////
+
+  /** Everything getBenchmarks() opened that outlives a single operation; see closeAll(). */
+  private final List<AutoCloseable> closeables=new ArrayList<>();
+
+  /**
+   * Registers a SimplePDF that's shared by a benchmark's operations for closing. It may never have been drawn on,
+   * when the benchmark wasn't selected, and iText won't close a document without pages, so it gets a blank one.
+   */
+  private SimplePDF open(final SimplePDF pdf) {
+    closeables.add(()->{
+      pdf.getInternalRenderer().getPdfWriter().setPageEmpty(false);
+      pdf.close();
+    });
+    return pdf;
+  }
+  private void closeAll() throws Exception {
+    Exception first=null;
+    for (AutoCloseable c: closeables)
+      try {
+        c.close();
+      } catch (Exception e) {
+        if (first==null)
+          first=e;
+      }
+    closeables.clear();
+    if (first!=null)
+      throw first;
+  }
+
+  private static class Named {
+    final String name, resultLabel;
+    final Bench.Op op;
+    Named(String name, Bench.Op op) {
+      this(name, null, op);
+    }
+    /** For benchmarks whose result is worth printing, as <code>resultLabel</code>. */
+    Named(String name, String resultLabel, Bench.Op op) {
+      this.name=name;
+      this.resultLabel=resultLabel;
+      this.op=op;
+    }
+  }
+
+  private static FileChannel openChannel(File file) throws Exception {
+    return FileChannel.open(
+      file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING
+    );
+  }
+
+  /** Discards everything but the byte count; we only want to measure the work of generating output. */
+  static class NullOutputStream extends OutputStream {
+    long count=0;
+    public @Override void write(int b) {
+      count++;
+    }
+    public @Override void write(byte[] b, int off, int len) {
+      count+=len;
+    }
+  }
+}
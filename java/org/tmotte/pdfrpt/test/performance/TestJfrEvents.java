@@ -0,0 +1,142 @@
+package org.tmotte.pdfrpt.test.performance;
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.tmotte.pdfrpt.FontInfo;
+import org.tmotte.pdfrpt.PageInfo;
+import org.tmotte.pdfrpt.SimplePDF;
+import org.tmotte.pdfrpt.report.PageCount;
+import org.tmotte.pdfrpt.report.Report;
+import org.tmotte.pdfrpt.report.ReportItem;
+import org.tmotte.pdfrpt.report.item.PLine;
+import org.tmotte.pdfrpt.report.item.PText;
+import org.tmotte.pdfrpt.report.item.PTextLines;
+import org.tmotte.pdfrpt.test.ITest;
+
+/**
+ * Verifies that the Java Flight Recorder events are recorded when enabled, with sensible fields, and not at all
+ * otherwise; and that the same events come from a Report whose items are in a LinkedList, which must be walked
+ * with an Iterator.
+ */
+public class TestJfrEvents implements ITest {
+
+  public static void main(String[] args) throws Exception {
+    new TestJfrEvents().test();
+  }
+
+  private final static String[] names={"FontLoad", "LineBreak", "PageBreak", "PagePrint", "DocumentClose"};
+
+  public @Override void test() throws Exception {
+    Map<String, Integer> counts=record(false, false);
+    if (!counts.isEmpty())
+      throw new RuntimeException("Events should be disabled by default: "+counts);
+
+    counts=record(true, false);
+    int pages=counts.getOrDefault("pages", 0);
+    if (pages<2)
+      throw new RuntimeException("Expected several pages, got "+pages);
+    check(counts, "FontLoad", 1);
+    check(counts, "LineBreak", 300);
+    check(counts, "PageBreak", pages-1);
+    check(counts, "PagePrint", pages);
+    check(counts, "DocumentClose", 1);
+
+    Map<String, Integer> linked=record(true, true);
+    if (!linked.equals(counts))
+      throw new RuntimeException("Expected "+counts+" from a LinkedList, got "+linked);
+  }
+
+  private static Map<String, Integer> record(boolean enabled, boolean linked) throws Exception {
+    Map<String, Integer> counts=new HashMap<String, Integer>();
+    Path file=Files.createTempFile("pdfrpt", ".jfr");
+    try (Recording recording=new Recording()) {
+      if (enabled)
+        for (String name: names)
+          recording.enable("org.tmotte.pdfrpt."+name);
+      recording.start();
+      print(linked);
+      recording.stop();
+      recording.dump(file);
+      int page=0, unwritten=0;
+      List<RecordedEvent> pagePrints=new ArrayList<RecordedEvent>();
+      for (RecordedEvent e: RecordingFile.readAllEvents(file)) {
+        String name=e.getEventType().getName();
+        if (!name.startsWith("org.tmotte.pdfrpt."))
+          continue;
+        name=name.substring("org.tmotte.pdfrpt.".length());
+        counts.merge(name, 1, Integer::sum);
+        if (name.equals("PagePrint"))
+          pagePrints.add(e);
+        else
+        if (name.equals("DocumentClose") && e.getLong("bytes")<=0)
+          throw new RuntimeException("Unexpected "+e);
+      }
+      //The file has them in the order their buffers were flushed, but by time they're in order, since they're all
+      //from one thread:
+      pagePrints.sort(Comparator.comparing(RecordedEvent::getStartTime));
+      for (RecordedEvent e: pagePrints) {
+        if (e.getInt("page")!=++page || e.getInt("items")<1)
+          throw new RuntimeException("Unexpected "+e);
+        //The last page isn't written until the document is closed:
+        if (e.getLong("bytes")<=0)
+          unwritten++;
+        counts.put("pages", page);
+      }
+      if (unwritten>1)
+        throw new RuntimeException("Only the last page should have no bytes written");
+    } finally {
+      Files.deleteIfExists(file);
+    }
+    return counts;
+  }
+
+  private static void print(boolean linked) throws Exception {
+    File ttf=new File("./lib/fonts/nobile.ttf");
+    FontInfo font;
+    try (FileInputStream in=new FileInputStream(ttf)) {
+      font=new FontInfo(FontInfo.loadFont("nobile.ttf", in, (int)ttf.length()), 9);
+    }
+    try (SimplePDF pdf=new SimplePDF(new TestBench.NullOutputStream(), new PageInfo(PageInfo.LETTER_PORTRAIT, 30))) {
+      Report report=(linked ?new LinkedReport(pdf) :new Report(pdf)).setStreaming(pdf);
+      PageCount pageCount=new PageCount();
+      PText header=new PText(font, pdf.getWidth(), "Header");
+      PLine footer=new PLine(pdf.getWidth(), 0);
+      report.add(header);
+      for (int i=0; i<300; i++)
+        report.addVertical(
+          new PTextLines(font, 200, "Record "+i+" has a description that is long enough to wrap onto a second line."),
+          pageCount, footer, header
+        );
+      report.addFooterAndPrint(footer, pdf);
+    }
+  }
+
+  /** Keeps its items in a LinkedList, as Report used to, and refuses indexed access, which would be O(n^2). */
+  private static class LinkedReport extends Report {
+    LinkedReport(SimplePDF pdf) {
+      super(pdf);
+      items=new LinkedList<ReportItem>() {
+        private final static long serialVersionUID=1;
+        public @Override ReportItem get(int index) {
+          throw new UnsupportedOperationException("Indexed access to a LinkedList");
+        }
+      };
+    }
+  }
+
+  private static void check(Map<String, Integer> counts, String name, int expected) {
+    int actual=counts.getOrDefault(name, 0);
+    if (actual!=expected)
+      throw new RuntimeException(name+": expected "+expected+", got "+actual);
+  }
+}
@@ -2,6 +2,10 @@ package org.tmotte.pdfrpt.test.performance;
 import com.itextpdf.text.BaseColor;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import org.tmotte.pdfrpt.FontCatalog;
 import org.tmotte.pdfrpt.FontInfo;
 import org.tmotte.pdfrpt.PageInfo;
 import org.tmotte.pdfrpt.report.item.PLine;
@@ -59,33 +63,64 @@ public class TestLoad implements ITest {
             headerForeground=new BaseColor(230, 230, 100);
 
   public void makeReport(SimplePDF pdf, int recordCount) throws Exception {
-    java.util.Random ran=new java.util.Random(System.currentTimeMillis());
+    makeReport(pdf, recordCount, false);
+  }
+
+  /**
+   * @param parallel If true, the records are created in parallel with <code>Report.addAllVertical()</code>;
+   *   the random data is still generated in order, so the result is the same.
+   */
+  public void makeReport(SimplePDF pdf, int recordCount, boolean parallel) throws Exception {
+    layoutReport(new Report(pdf), pdf, recordCount, parallel).print(pdf);
+  }
 
-    fontReg =new FontInfo("Test2Reg.ttf",    new File("./lib/fonts/nobile.ttf").toURI().toURL())
-      .setFontSize(9).adjustLineSpacing(-0.5f, -0.5f);
-    fontBold=new FontInfo("Test2Bold.ttf",   new File("./lib/fonts/nobile_bold.ttf").toURI().toURL()).setFontSize(9);
-    fontItal=new FontInfo("Test2Italic.ttf", new File("./lib/fonts/nobile_italic.ttf").toURI().toURL()).setFontSize(9);
+  /** Adds everything to <code>report</code>, including the last footer, but doesn't print it. */
+  Report layoutReport(Report report, SimplePDF pdf, int recordCount, boolean parallel) throws Exception {
+    return layoutReport(report, pdf, recordCount, parallel, System.currentTimeMillis());
+  }
+  /** Works the same as <code>layoutReport(report, pdf, recordCount, parallel)</code>, with the same data every time. */
+  Report layoutReport(Report report, SimplePDF pdf, int recordCount, boolean parallel, long seed) throws Exception {
+    java.util.Random ran=new java.util.Random(seed);
+
+    FontCatalog fonts=FontCatalog.getDefault();
+    fontReg =new FontInfo(fonts.getFont("Test2Reg.ttf",    new File("./lib/fonts/nobile.ttf")), 9)
+      .adjustLineSpacing(-0.5f, -0.5f).freeze();
+    fontBold=new FontInfo(fonts.getFont("Test2Bold.ttf",   new File("./lib/fonts/nobile_bold.ttf")), 9);
+    fontItal=new FontInfo(fonts.getFont("Test2Italic.ttf", new File("./lib/fonts/nobile_italic.ttf")), 9);
     pdf.setFontInfo(fontReg);
     colSize4=pdf.getWidth()-(3+colSize1+colSize2+colSize3+colSizeSpacer);
 
     PageCount pageCount=new PageCount();
     ReportItem otherHeader=makePageHeader(pdf, true),
                footer=getFooter(pdf, pageCount);
-    Report report=new Report(pdf);
     report.add(makePageHeader(pdf, false));
-    for (int i=0; i<recordCount; i++) {
-      ReportItem record=new PGroup(
-        PGroup.Horizontal
-        ,new PText(fontReg, colSize1, ""+i).setLeft(3)
-        ,new PText(fontReg, colSize2, ""+getRandom(ran))
-        ,new PText(fontReg, colSize3, ""+getRandom(ran)).rightAlign()
-        ,new PTextLines(fontReg, colSize4, getParagraph(ran))
-          .setLeft(colSizeSpacer)
-      )
-      .setTop(3);
-      report.addVertical(record, pageCount, footer, otherHeader);
+    if (parallel) {
+      List<Supplier<ReportItem>> records=new ArrayList<>(recordCount);
+      for (int i=0; i<recordCount; i++) {
+        final int index=i;
+        final String col2=""+getRandom(ran), col3=""+getRandom(ran), col4=getParagraph(ran);
+        records.add(()->makeRecord(index, col2, col3, col4));
+      }
+      report.addAllVertical(records, pageCount, footer, otherHeader);
     }
-    report.addFooterAndPrint(footer, pdf);
+    else
+      for (int i=0; i<recordCount; i++) {
+        String col2=""+getRandom(ran), col3=""+getRandom(ran);
+        report.addVertical(makeRecord(i, col2, col3, getParagraph(ran)), pageCount, footer, otherHeader);
+      }
+    return report.addFooter(footer);
+  }
+
+  private ReportItem makeRecord(int i, String col2, String col3, String col4) {
+    return new PGroup(
+      PGroup.Horizontal
+      ,new PText(fontReg, colSize1, ""+i).setLeft(3)
+      ,new PText(fontReg, colSize2, col2)
+      ,new PText(fontReg, colSize3, col3).rightAlign()
+      ,new PTextLines(fontReg, colSize4, col4)
+        .setLeft(colSizeSpacer)
+    )
+    .setTop(3);
   }
 
   private String getParagraph(java.util.Random ran) {
@@ -0,0 +1,96 @@
+package org.tmotte.pdfrpt.test.performance;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.LinkedList;
+import org.tmotte.pdfrpt.PageInfo;
+import org.tmotte.pdfrpt.report.Report;
+import org.tmotte.pdfrpt.report.ReportItem;
+import org.tmotte.pdfrpt.SimplePDF;
+import org.tmotte.pdfrpt.test.ITest;
+
+/**
+ * Measures the heap retained by a fully laid-out (but unprinted) TestLoad report, comparing the current storage of
+ * PGroup items with the LinkedList that Report used to get. Give it a big heap, e.g.
+ * <code>java -Xmx2g org.tmotte.pdfrpt.test.performance.TestMemory 100000</code>; the argument is the
+ * number of records. Also reports how <code>Report.getMemoryEstimate()</code> compares with the measurement;
+ * as an automated test it only checks the estimate, since heap measurements depend on the JVM &amp; whatever
+ * else is running. TestMemoryEstimate checks the estimates of each kind of item.
+ */
+public class TestMemory implements ITest {
+
+  public static void main(String[] args) throws Exception {
+    int count=args.length>0 ?Integer.parseInt(args[0]) :100000;
+    TestMemory tm=new TestMemory();
+    for (int i=0; i<2; i++) {
+      long linked=tm.measure(count, true), current=tm.measure(count, false);
+      System.out.println(
+        String.format(
+          "%d records: LinkedList %,d bytes, current %,d bytes, saved %,d bytes (%.1f per record);"
+            +" estimated %,d bytes (%.2f of current)",
+          count, linked, current, linked-current, (linked-current)/(double)count, tm.estimate,
+          tm.estimate/(double)current
+        )
+      );
+    }
+  }
+
+  /**
+   * Makes sure the measurement still runs, and that the estimate is repeatable, grows with the records and counts
+   * a LinkedList node, rather than an array slot, for each of the LinkedList's items.
+   */
+  public @Override void test() throws Exception {
+    measure(2000, true);
+    long linked=estimate, nodes=(long)linkedItems*(24-4);
+    measure(2000, false);
+    long small=estimate;
+    measure(2000, false);
+    if (estimate!=small)
+      throw new RuntimeException("Estimates differ for the same report: "+small+", "+estimate);
+    if (linkedItems<2000 || Math.abs(linked-small-nodes)>16)
+      throw new RuntimeException(
+        "Expected the LinkedList's "+linkedItems+" nodes to add about "+nodes+" bytes: "+linked+" vs "+small
+      );
+    measure(4000, false);
+    if (small<=0 || estimate<small*19/10 || estimate>small*21/10)
+      throw new RuntimeException("Estimated "+small+" bytes for 2000 records but "+estimate+" for 4000");
+  }
+
+  private final MemoryMXBean memory=ManagementFactory.getMemoryMXBean();
+  /** The last report's <code>getMemoryEstimate()</code>. */
+  private long estimate;
+  /** The number of items in the last LinkedList report. */
+  private int linkedItems;
+
+  /** @return The number of bytes retained by the report. */
+  long measure(int recordCount, boolean linked) throws Exception {
+    try (SimplePDF pdf=new SimplePDF(new TestBench.NullOutputStream(), new PageInfo(PageInfo.LETTER_PORTRAIT, 25))) {
+      long before=getUsed();
+      Report report=linked ?new LinkedReport(pdf) :new Report(pdf);
+      new TestLoad().layoutReport(report, pdf, recordCount, false, 1);
+      long after=getUsed();
+      estimate=report.getMemoryEstimate();
+      if (linked)
+        linkedItems=((LinkedReport)report).size();
+      if (report.getHeight()<=0)
+        throw new RuntimeException("Report is empty");
+      return after-before;
+    }
+  }
+
+  private long getUsed() {
+    for (int i=0; i<3; i++)
+      System.gc();
+    return memory.getHeapMemoryUsage().getUsed();
+  }
+
+  /** A Report that stores its items the old way. */
+  private static class LinkedReport extends Report {
+    LinkedReport(SimplePDF pdf) {
+      super(pdf);
+      items=new LinkedList<ReportItem>();
+    }
+    int size() {
+      return items.size();
+    }
+  }
+}
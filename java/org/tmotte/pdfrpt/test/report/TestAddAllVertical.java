@@ -0,0 +1,127 @@
+package org.tmotte.pdfrpt.test.report;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.tmotte.pdfrpt.FontInfo;
+import org.tmotte.pdfrpt.PageInfo;
+import org.tmotte.pdfrpt.report.item.PText;
+import org.tmotte.pdfrpt.report.item.PTextLines;
+import org.tmotte.pdfrpt.report.PageCount;
+import org.tmotte.pdfrpt.report.PGroup;
+import org.tmotte.pdfrpt.report.Report;
+import org.tmotte.pdfrpt.report.ReportItem;
+import org.tmotte.pdfrpt.SimplePDF;
+import org.tmotte.pdfrpt.test.ITest;
+import org.tmotte.pdfrpt.test.PDFAssert;
+
+/**
+ * Verifies that <code>Report.addAllVertical()</code> lays out records exactly as the equivalent
+ * calls to <code>addVertical(item, pageCount, footer, header)</code> do, and that a failure stops the
+ * records still being created.
+ */
+public class TestAddAllVertical implements ITest {
+
+  public static void main(String[] args) throws Exception {
+    new TestAddAllVertical().test();
+  }
+
+  public @Override void test() throws Exception {
+    File sequential=new File("build", getClass().getName()+".sequential.pdf"),
+         parallel=new File("build", getClass().getName()+".pdf");
+    FontInfo font=new FontInfo().setFontSize(8).freeze();
+    print(sequential, font, false);
+    print(parallel, font, true);
+
+    PDFAssert.assertSameContent(
+      Files.readAllBytes(sequential.toPath()), Files.readAllBytes(parallel.toPath()), "addAllVertical()"
+    );
+
+    testFailure(font);
+  }
+
+  /** A record in the second chunk fails while the third chunk is being created; the third should stop. */
+  private void testFailure(final FontInfo font) throws Exception {
+    final AtomicInteger invoked=new AtomicInteger();
+    List<Supplier<ReportItem>> records=new ArrayList<>();
+    for (int i=0; i<5000; i++) {
+      final int index=i;
+      records.add(()->{
+        invoked.incrementAndGet();
+        if (index==1500)
+          throw new IllegalStateException("Expected");
+        try {
+          Thread.sleep(2);
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+        return new PText(font, "Record "+index);
+      });
+    }
+    ForkJoinPool pool=new ForkJoinPool(2);
+    try (SimplePDF pdf=new SimplePDF(new java.io.ByteArrayOutputStream(), new PageInfo(PageInfo.LETTER_PORTRAIT, 30))) {
+      try {
+        new Report(pdf).addAllVertical(records, new PageCount(), null, null, pool);
+        throw new RuntimeException("Expected a failure");
+      } catch (IllegalStateException e) {}
+      pdf.draw("Failed");
+      Thread.sleep(100);
+      int settled=invoked.get();
+      Thread.sleep(300);
+      if (invoked.get()!=settled)
+        throw new RuntimeException("Records still being created after the failure: "+settled+" then "+invoked.get());
+      if (settled>=3072)
+        throw new RuntimeException("Too many records created: "+settled);
+    } finally {
+      pool.shutdownNow();
+      pool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+  }
+
+  private void print(File file, FontInfo font, boolean parallel) throws Exception {
+    try (SimplePDF pdf=new SimplePDF(new FileOutputStream(file), new PageInfo(PageInfo.LETTER_PORTRAIT, 30))) {
+      PageCount pageCount=new PageCount();
+      ReportItem
+        header=new PText(font, "Records"),
+        otherHeader=new PText(font, "Continued..."),
+        footer=new PText(font, pdf.getWidth(), "Page "+PText.REPLACE_CURR_PAGE+" of "+PText.REPLACE_PAGE_COUNT)
+          .setPageCount(pageCount).rightAlign();
+      Report report=new Report(pdf);
+      report.add(header);
+
+      //More than one chunk's worth:
+      Random random=new Random(1);
+      List<Supplier<ReportItem>> records=new ArrayList<>();
+      for (int i=0; i<2500; i++) {
+        final String label="Record "+i;
+        final int words=random.nextInt(40);
+        final long seed=random.nextLong();
+        records.add(()->makeRecord(font, label, words, seed));
+      }
+      if (parallel)
+        report.addAllVertical(records, pageCount, footer, otherHeader);
+      else
+        for (Supplier<ReportItem> s: records)
+          report.addVertical(s.get(), pageCount, footer, otherHeader);
+      report.addFooterAndPrint(footer, pdf);
+    }
+  }
+
+  private static ReportItem makeRecord(FontInfo font, String label, int words, long seed) {
+    Random random=new Random(seed);
+    StringBuilder sb=new StringBuilder();
+    for (int i=0; i<words; i++)
+      sb.append(Long.toString(random.nextLong() & 0xffffffffL, 36)).append(' ');
+    return new PGroup(
+      PGroup.Horizontal
+      ,new PText(font, 80, label)
+      ,new PTextLines(font, 300, sb.toString())
+    ).setTop(2);
+  }
+}
@@ -0,0 +1,107 @@
+package org.tmotte.pdfrpt.test.report;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import org.tmotte.pdfrpt.FontInfo;
+import org.tmotte.pdfrpt.PageInfo;
+import org.tmotte.pdfrpt.report.item.PText;
+import org.tmotte.pdfrpt.report.item.PTextLines;
+import org.tmotte.pdfrpt.report.PageCount;
+import org.tmotte.pdfrpt.report.PGroup;
+import org.tmotte.pdfrpt.report.Report;
+import org.tmotte.pdfrpt.report.ReportItem;
+import org.tmotte.pdfrpt.SimplePDF;
+import org.tmotte.pdfrpt.test.ITest;
+import org.tmotte.pdfrpt.test.PDFAssert;
+
+/**
+ * Verifies that <code>Report.addRows()</code> lays out rows exactly as the equivalent calls to
+ * <code>addVertical(item, pageCount, footer, header)</code> do, and that when streaming it never pulls more than
+ * about a page of rows ahead of what has been printed.
+ */
+public class TestAddRows implements ITest {
+
+  public static void main(String[] args) throws Exception {
+    new TestAddRows().test();
+  }
+
+  private final static int pageRows=100;
+
+  public @Override void test() throws Exception {
+    FontInfo font=new FontInfo().setFontSize(8).freeze();
+
+    //Same output:
+    ByteArrayOutputStream expected=new ByteArrayOutputStream(), actual=new ByteArrayOutputStream();
+    print(expected, font, 1000, false);
+    print(actual, font, 1000, true);
+    try (FileOutputStream out=new FileOutputStream(new File("build", getClass().getName()+".pdf"))) {
+      out.write(actual.toByteArray());
+    }
+    PDFAssert.assertSameContent(expected.toByteArray(), actual.toByteArray(), "addRows()");
+
+    //Bounded: checked by Rows.next()
+    print(
+      new OutputStream() {
+        public @Override void write(int b) {}
+        public @Override void write(byte[] b, int off, int len) {}
+      },
+      font, 50000, true
+    );
+  }
+
+  private static void print(OutputStream out, FontInfo font, int count, boolean rows) throws Exception {
+    try (SimplePDF pdf=new SimplePDF(out, new PageInfo(PageInfo.LETTER_PORTRAIT, 30))) {
+      PageCount pageCount=new PageCount();
+      ReportItem
+        header=new PText(font, "Rows"),
+        footer=new PText(font, pdf.getWidth(), "Page "+PText.REPLACE_CURR_PAGE+" of "+PText.REPLACE_PAGE_COUNT)
+          .setPageCount(pageCount).rightAlign();
+      Report report=new Report(pdf).setStreaming(pdf);
+      report.add(header);
+      Rows source=new Rows(count);
+      if (rows)
+        report.addRows(source, row->source.render(font, row), pageCount, footer, header);
+      else
+        while (source.hasNext())
+          report.addVertical(source.render(font, source.next()), pageCount, footer, header);
+      report.addFooterAndPrint(footer, pdf);
+    }
+  }
+
+  /**
+   * Makes rows as they're requested, like a database cursor would, and checks that there are never more than
+   * about a page of them waiting to be printed.
+   */
+  private static class Rows implements Iterator<Integer> {
+    final int count;
+    int pulled=0, printed=0;
+    Rows(int count) {
+      this.count=count;
+    }
+    public @Override boolean hasNext() {
+      return pulled<count;
+    }
+    public @Override Integer next() {
+      if (!hasNext())
+        throw new NoSuchElementException();
+      if (pulled-printed>pageRows)
+        throw new RuntimeException("Pulled "+pulled+" rows but only printed "+printed);
+      return pulled++;
+    }
+    ReportItem render(FontInfo font, int row) {
+      return new PGroup(
+        PGroup.Horizontal,
+        new PText(font, 80, "Row "+row),
+        new PTextLines(font, 300, row % 7==0 ?"A longer description that needs to wrap onto a second line, at least." :"Short")
+      ) {
+        public @Override void print(SimplePDF pdf) throws Exception {
+          super.print(pdf);
+          printed++;
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package org.tmotte.pdfrpt.test.report;
+import com.itextpdf.text.BaseColor;
+import com.itextpdf.text.Image;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import org.tmotte.pdfrpt.FontInfo;
+import org.tmotte.pdfrpt.PageInfo;
+import org.tmotte.pdfrpt.report.item.PImage;
+import org.tmotte.pdfrpt.report.item.PLine;
+import org.tmotte.pdfrpt.report.item.PRect;
+import org.tmotte.pdfrpt.report.item.PSpacer;
+import org.tmotte.pdfrpt.report.item.PText;
+import org.tmotte.pdfrpt.report.item.PTextLines;
+import org.tmotte.pdfrpt.report.DisplayList;
+import org.tmotte.pdfrpt.report.PageCount;
+import org.tmotte.pdfrpt.report.PGroup;
+import org.tmotte.pdfrpt.report.Report;
+import org.tmotte.pdfrpt.report.ReportItem;
+import org.tmotte.pdfrpt.SimplePDF;
+import org.tmotte.pdfrpt.test.ITest;
+import org.tmotte.pdfrpt.test.PDFAssert;
+
+/**
+ * Verifies that rendering a DisplayList produces exactly the same page content as printing the Report it was
+ * compiled from, including page numbers, and that one DisplayList can be rendered to several documents.
+ */
+public class TestDisplayList implements ITest {
+
+  public static void main(String[] args) throws Exception {
+    new TestDisplayList().test();
+  }
+
+  private Image image;
+
+  public @Override void test() throws Exception {
+    image=SimplePDF.loadImage(new File("./lib/images/test2.jpg").toURI().toURL());
+    FontInfo font=new FontInfo().setFontSize(9).freeze(),
+             bold=new FontInfo(font).setColor(120, 20, 20).setFontSize(12).freeze();
+
+    //With page numbers, which are printed live:
+    File printed=file("printed"), rendered=file("rendered");
+    try (SimplePDF pdf=makePDF(printed)) {
+      layout(pdf, font, bold, true).print(pdf);
+    }
+    try (SimplePDF pdf=makePDF(rendered)) {
+      Report report=layout(pdf, font, bold, true);
+      float x=pdf.getITextX(), y=pdf.getITextY();
+      DisplayList list=DisplayList.compile(report, pdf);
+      if (pdf.getITextX()!=x || pdf.getITextY()!=y)
+        throw new RuntimeException("Compiling moved the PDF's coordinates");
+      list.render(pdf);
+    }
+    compare(printed, rendered);
+
+    //Without, so the same DisplayList can be rendered twice:
+    File printedAgain=file("printed2"), renderedOnce=file("rendered2"), renderedTwice=file("rendered3");
+    try (SimplePDF pdf=makePDF(printedAgain)) {
+      layout(pdf, font, bold, false).print(pdf);
+    }
+    DisplayList list;
+    try (SimplePDF pdf=makePDF(renderedOnce)) {
+      list=DisplayList.compile(layout(pdf, font, bold, false), pdf);
+      list.render(pdf);
+    }
+    try (SimplePDF pdf=makePDF(renderedTwice)) {
+      list.render(pdf);
+    }
+    compare(printedAgain, renderedOnce);
+    compare(printedAgain, renderedTwice);
+  }
+
+  private File file(String name) {
+    return new File("build", getClass().getName()+"."+name+".pdf");
+  }
+  private static SimplePDF makePDF(File file) throws Exception {
+    SimplePDF pdf=new SimplePDF(new FileOutputStream(file), new PageInfo(PageInfo.LETTER_PORTRAIT, 30));
+    pdf.setColor(0, 0, 80);
+    return pdf;
+  }
+
+  private Report layout(SimplePDF pdf, FontInfo font, FontInfo bold, boolean pageNumbers) throws Exception {
+    PageCount pageCount=new PageCount();
+    PText footer=new PText(font, pdf.getWidth(), pageNumbers ?"Page "+PText.REPLACE_CURR_PAGE+" of "+PText.REPLACE_PAGE_COUNT :"Footer");
+    if (pageNumbers)
+      footer.setPageCount(pageCount);
+    ReportItem header=new PGroup(
+      new PText(bold, pdf.getWidth(), "Display list").center(),
+      new PLine(pdf.getWidth(), 0).setLineWidth(2).setColor(30, 90, 30).setTop(16)
+    );
+    Report report=new Report(pdf);
+    report.addVertical(header);
+    Random random=new Random(1);
+    for (int i=0; i<120; i++) {
+      StringBuilder sb=new StringBuilder();
+      for (int w=random.nextInt(30); w>0; w--)
+        sb.append(Long.toString(random.nextLong() & 0xffffffL, 36)).append(' ');
+      PGroup record=new PGroup(
+        PGroup.Horizontal
+        ,new PRect().setRounded(i%3).setColor(new BaseColor(i, 255-i, 128)).enclose(2, new PText(font, 60, "Record "+i))
+        ,new PSpacer().setWidth(5)
+        ,new PTextLines(i%2==0 ?font :bold, 250, sb.toString()).setTop(1.3f)
+        ,new PText(font, 90, String.format("%,.3f", random.nextDouble()*1e5)).rightAlign()
+        ,new PRect(40, 10).setFill(200, i, 100).setLeft(3.7f)
+      );
+      if (i%17==0)
+        record.addVertical(new PImage(image).resize(60, 60));
+      if (i%5==0)
+        record.addVertical(new PLine(record.getWidth(), 0).setTop(1));
+      report.addVertical(new PGroup(record).setTop(2.1f), pageCount, footer, header);
+    }
+    return report.addFooter(footer);
+  }
+
+  private static void compare(File expected, File got) throws Exception {
+    PDFAssert.assertSameContent(
+      Files.readAllBytes(expected.toPath()), Files.readAllBytes(got.toPath()), got.toString()
+    );
+  }
+}
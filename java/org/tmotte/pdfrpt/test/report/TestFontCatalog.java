@@ -0,0 +1,73 @@
+package org.tmotte.pdfrpt.test.report;
+import com.itextpdf.text.pdf.BaseFont;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.tmotte.pdfrpt.FontCatalog;
+import org.tmotte.pdfrpt.test.ITest;
+
+/**
+ * Verifies that FontCatalog loads each font only once even when many threads ask for it at the same time,
+ * and that failures are passed on but not cached.
+ */
+public class TestFontCatalog implements ITest {
+
+  public static void main(String[] args) throws Exception {
+    new TestFontCatalog().test();
+  }
+
+  public @Override void test() throws Exception {
+    final FontCatalog catalog=new FontCatalog();
+    final File file=new File("./lib/fonts/nobile.ttf");
+    BaseFont first=catalog.getFont("Test2Reg.ttf", file);
+    if (catalog.getFont("Test2Reg.ttf", file.toURI().toURL())!=first)
+      throw new RuntimeException("Font was loaded twice");
+
+    //Lots of threads at once:
+    final AtomicInteger loads=new AtomicInteger();
+    final CountDownLatch go=new CountDownLatch(1);
+    ExecutorService threads=Executors.newFixedThreadPool(16);
+    try {
+      List<Future<BaseFont>> results=new ArrayList<>();
+      for (int i=0; i<16; i++)
+        results.add(threads.submit(()->{
+          go.await();
+          return catalog.getFont("bold", ()->{
+            loads.incrementAndGet();
+            Thread.sleep(50);
+            return BaseFont.createFont(BaseFont.HELVETICA_BOLD, BaseFont.WINANSI, BaseFont.NOT_EMBEDDED);
+          });
+        }));
+      go.countDown();
+      BaseFont bold=results.get(0).get();
+      for (Future<BaseFont> f: results)
+        if (f.get()!=bold)
+          throw new RuntimeException("Threads got different fonts");
+      if (loads.get()!=1)
+        throw new RuntimeException("Expected 1 load, got "+loads.get());
+    } finally {
+      threads.shutdown();
+    }
+
+    //Failures:
+    for (int i=0; i<2; i++)
+      try {
+        catalog.getFont("missing", ()->{
+          loads.incrementAndGet();
+          throw new IOException("No such font");
+        });
+        throw new RuntimeException("Expected an IOException");
+      } catch (IOException e) {
+      }
+    if (loads.get()!=3)
+      throw new RuntimeException("Failure should not be cached; loads: "+loads.get());
+    if (catalog.size()!=2)
+      throw new RuntimeException("Expected 2 fonts, got "+catalog.size());
+  }
+}
@@ -0,0 +1,63 @@
+package org.tmotte.pdfrpt.test.report;
+import com.itextpdf.text.pdf.BaseFont;
+import java.io.File;
+import java.util.function.Supplier;
+import org.tmotte.pdfrpt.FontInfo;
+import org.tmotte.pdfrpt.test.ITest;
+
+/**
+ * Verifies that FontInfo's cached glyph widths measure text exactly the same as iText's
+ * <code>BaseFont.getWidthPoint()</code>, for a variety of font types and characters.
+ */
+public class TestFontWidths implements ITest {
+
+  public static void main(String[] args) throws Exception {
+    new TestFontWidths().test();
+  }
+
+  private final static String[] samples={
+    "",
+    "Hello, world",
+    "The quick brown fox jumps over the lazy dog 0123456789 ~!@#$%^&*()",
+    "Latin-1: \u00e9\u00e8\u00fc\u00df\u00a9\u00bd \u00ff",
+    "Windows-1252 extras: \u20ac \u2018\u2019\u201c\u201d \u2022 \u2014",
+    "Greek & Cyrillic: \u03b1\u03b2\u03b3 \u0416\u0438\u0437\u043d\u044c",
+    "CJK: \u4e2d\u6587\u65e5\u672c\u8a9e",
+    "Supplementary: \ud83d\ude00 \ud835\udc00 end",
+    "Lone surrogates: \ud83d x \ude00",
+  };
+
+  public @Override void test() throws Exception {
+    File ttf=new File("./lib/fonts/nobile.ttf");
+    BaseFont[] fonts={
+      BaseFont.createFont(),
+      BaseFont.createFont(BaseFont.TIMES_ROMAN, BaseFont.CP1250, BaseFont.NOT_EMBEDDED),
+      BaseFont.createFont(BaseFont.SYMBOL, BaseFont.WINANSI, BaseFont.NOT_EMBEDDED),
+      new FontInfo("Test2Reg.ttf", ttf.toURI().toURL()).getFont(),
+      BaseFont.createFont(ttf.getPath(), BaseFont.IDENTITY_H, BaseFont.EMBEDDED),
+      BaseFont.createFont(ttf.getPath(), BaseFont.IDENTITY_V, BaseFont.EMBEDDED),
+    };
+    for (BaseFont bf: fonts)
+      for (float size: new float[]{7, 9.5f, 12, 33.3f}) {
+        FontInfo fi=new FontInfo(bf, size);
+        for (String s: samples) {
+          check(bf, s, ()->fi.getWidth(s), ()->bf.getWidthPoint(s, size));
+          for (int i=0; i<s.length(); i++) {
+            char c=s.charAt(i);
+            check(bf, String.valueOf(c), ()->fi.getWidth(c), ()->bf.getWidthPoint(c, size));
+          }
+        }
+      }
+  }
+
+  /** If iText can't measure something, FontInfo shouldn't be able to either. */
+  private static void check(BaseFont bf, String s, Supplier<Float> got, Supplier<Float> expected) {
+    Float e=null, g=null;
+    try {e=expected.get();} catch (RuntimeException ex) {}
+    try {g=got.get();} catch (RuntimeException ex) {}
+    if (e==null ?g!=null :g==null || Float.floatToIntBits(g)!=Float.floatToIntBits(e))
+      throw new RuntimeException(
+        "Width mismatch for "+bf.getPostscriptFontName()+" "+bf.getEncoding()+" \""+s+"\": "+g+" vs "+e
+      );
+  }
+}
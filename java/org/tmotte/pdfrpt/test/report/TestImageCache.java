@@ -0,0 +1,116 @@
+package org.tmotte.pdfrpt.test.report;
+import com.itextpdf.text.pdf.PdfName;
+import com.itextpdf.text.pdf.PdfObject;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.PdfStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.tmotte.pdfrpt.ImageCache;
+import org.tmotte.pdfrpt.PageInfo;
+import org.tmotte.pdfrpt.report.item.PImage;
+import org.tmotte.pdfrpt.report.Report;
+import org.tmotte.pdfrpt.SimplePDF;
+import org.tmotte.pdfrpt.test.ITest;
+
+/**
+ * Verifies that an image used many times in a document is embedded once when it comes from the ImageCache,
+ * but many times otherwise, that the cache is bounded, and that threads racing to load the same image count one
+ * miss between them.
+ */
+public class TestImageCache implements ITest {
+
+  public static void main(String[] args) throws Exception {
+    new TestImageCache().test();
+  }
+
+  private final static int count=12;
+
+  public @Override void test() throws Exception {
+    File file=new File("./lib/images/test2.jpg");
+    URL url=file.toURI().toURL();
+
+    File cached=new File("build", getClass().getName()+".pdf"),
+         uncached=new File("build", getClass().getName()+".uncached.pdf");
+    print(cached, url, true);
+    print(uncached, url, false);
+    check(cached, 1);
+    check(uncached, count);
+    if (cached.length()*2>uncached.length())
+      throw new RuntimeException("Expected "+cached.length()+" bytes to be much less than "+uncached.length());
+
+    //Keys: the same file by URL & by File, and the same data as bytes:
+    ImageCache cache=new ImageCache(2);
+    cache.getImage(url);
+    cache.getImage(file);
+    byte[] data=Files.readAllBytes(file.toPath());
+    cache.getImage(data);
+    cache.getImage(data.clone());
+    if (cache.getHits()!=2 || cache.getMisses()!=2 || cache.size()!=2)
+      throw new RuntimeException("Hits/misses/size: "+cache.getHits()+" "+cache.getMisses()+" "+cache.size());
+    //Least recently used goes first:
+    File canonical=file.getCanonicalFile();
+    cache.getImage(url);
+    //A different URL for the same file, then different data, pushing out the data and then url:
+    cache.getImage(canonical);
+    cache.getImage(Arrays.copyOf(data, data.length+1));
+    cache.getImage(canonical);
+    cache.getImage(url);
+    if (cache.getHits()!=4 || cache.getMisses()!=5 || cache.size()!=2)
+      throw new RuntimeException("Hits/misses/size: "+cache.getHits()+" "+cache.getMisses()+" "+cache.size());
+
+    //Racing:
+    final ImageCache shared=new ImageCache(2);
+    final int threads=8;
+    final CyclicBarrier barrier=new CyclicBarrier(threads);
+    ExecutorService service=Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures=new ArrayList<>();
+      for (int i=0; i<threads; i++)
+        futures.add(service.submit(()->{
+          barrier.await();
+          return shared.getImage(data);
+        }));
+      for (Future<?> f: futures)
+        f.get();
+    } finally {
+      service.shutdown();
+    }
+    if (shared.getHits()!=threads-1 || shared.getMisses()!=1)
+      throw new RuntimeException("Racing hits/misses: "+shared.getHits()+" "+shared.getMisses());
+  }
+
+  private void print(File file, URL url, boolean useCache) throws Exception {
+    try (SimplePDF pdf=new SimplePDF(new FileOutputStream(file), new PageInfo(PageInfo.LETTER_PORTRAIT, 30))) {
+      Report report=new Report(pdf);
+      for (int i=0; i<count; i++) {
+        PImage image=useCache ?new PImage(pdf, url) :new PImage(url);
+        report.addVertical(image.resize(40+i*5, 40+i*5).setTop(4));
+        if (i%4==3)
+          report.newPage();
+      }
+      report.print(pdf);
+    }
+  }
+
+  private static void check(File file, int expected) throws Exception {
+    PdfReader reader=new PdfReader(file.getPath());
+    int images=0;
+    for (int i=1; i<reader.getXrefSize(); i++) {
+      PdfObject obj=reader.getPdfObject(i);
+      if (obj!=null && obj.isStream() && PdfName.IMAGE.equals(((PdfStream)obj).get(PdfName.SUBTYPE)))
+        images++;
+    }
+    reader.close();
+    if (images!=expected)
+      throw new RuntimeException(file+": expected "+expected+" embedded images, got "+images);
+  }
+}
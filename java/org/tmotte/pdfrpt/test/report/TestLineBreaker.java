@@ -0,0 +1,176 @@
+package org.tmotte.pdfrpt.test.report;
+import com.itextpdf.text.pdf.BaseFont;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.tmotte.common.text.StringChunker;
+import org.tmotte.pdfrpt.FontInfo;
+import org.tmotte.pdfrpt.test.ITest;
+
+/**
+ * Verifies that <code>FontInfo.getFit()</code> and <code>FontInfo.split()</code> break lines exactly as the
+ * original StringChunker-based algorithm did (a copy of which is kept here for comparison), using lots of random
+ * text with runs of spaces, long words and characters outside of Latin-1.
+ */
+public class TestLineBreaker implements ITest {
+
+  public static void main(String[] args) throws Exception {
+    new TestLineBreaker().test();
+  }
+
+  private final static String[] words={
+    "a", "I", "the", "quick", "brown", "fox", "jumps", "WWWWWWW", "iiiiiii", "0123456789",
+    "\u00e9t\u00e9", "\u0416\u0438\u0437\u043d\u044c", "\u4e2d\u6587", "x\ud83d\ude00y",
+    "https://example.com/some/very/long/path/that/just/keeps/going/and/going/index.html",
+  };
+
+  public @Override void test() throws Exception {
+    File ttf=new File("./lib/fonts/nobile.ttf");
+    BaseFont[] fonts={
+      BaseFont.createFont(),
+      new FontInfo("Test2Reg.ttf", ttf.toURI().toURL()).getFont(),
+      BaseFont.createFont(ttf.getPath(), BaseFont.IDENTITY_H, BaseFont.EMBEDDED),
+    };
+    Random random=new Random(1);
+    for (BaseFont bf: fonts)
+      for (float size: new float[]{7, 12, 19.5f}) {
+        FontInfo fi=new FontInfo(bf, size);
+        for (int i=0; i<300; i++) {
+          String text=makeText(random);
+          //Widths narrower than a char & hyphen would make the old algorithm loop forever:
+          float width=3*size+random.nextInt(400);
+          check(fi, text, width);
+        }
+        check(fi, "", 50);
+        check(fi, " ", 50);
+        check(fi, "   ", 1);
+      }
+
+    //Where a single char won't fit, we still get through, one char per line:
+    List<String> lines=new FontInfo().getFit("WWW WWW", 5);
+    if (!lines.equals(Arrays.asList("W-", "W-", "W-", "W-", "W-", "W-")))
+      throw new RuntimeException("Unexpected: "+lines);
+  }
+
+  private static String makeText(Random random) {
+    StringBuilder sb=new StringBuilder();
+    int count=random.nextInt(40);
+    for (int i=0; i<count; i++) {
+      int spaces=random.nextInt(10)==0 ?random.nextInt(4) :1;
+      for (int s=0; s<spaces; s++)
+        sb.append(' ');
+      sb.append(words[random.nextInt(words.length)]);
+    }
+    if (random.nextBoolean())
+      sb.append(' ');
+    return sb.toString();
+  }
+
+  private static void check(FontInfo fi, String text, float width) {
+    List<String> expected=legacyGetFit(fi, text, width), got=fi.getFit(text, width);
+    if (!expected.equals(got))
+      throw new RuntimeException("getFit(\""+text+"\", "+width+"):\n  "+got+"\nexpected\n  "+expected);
+    List<String> into=new ArrayList<>();
+    into.add("before");
+    if (!fi.getFit(text, width, into).subList(1, into.size()).equals(expected))
+      throw new RuntimeException("getFit(\""+text+"\", "+width+", lines): "+into);
+    String[] splitExpected=legacySplit(fi, text, width), splitGot=fi.split(text, width);
+    if (!Arrays.equals(splitExpected, splitGot))
+      throw new RuntimeException(
+        "split(\""+text+"\", "+width+"):\n  "+Arrays.toString(splitGot)+"\nexpected\n  "+Arrays.toString(splitExpected)
+      );
+  }
+
+  ////////////////////////////////
+  // THE ORIGINAL ALGORITHMS:   //
+  ////////////////////////////////
+
+  private static List<String> legacyGetFit(FontInfo fi, String str, float width) {
+    float allWidth=fi.getWidth(str);
+    if (allWidth<width){
+      ArrayList<String> list=new ArrayList<String>(1);
+      list.add(str);
+      return list;
+    }
+    List<String> lines=new ArrayList<String>();
+    StringChunker sc=new StringChunker(str);
+    StringBuilder sb=new StringBuilder();
+    float lineWidth=0, spaceWidth=fi.getWidth(' ');
+    while (sc.findOrFinish(" ")) {
+      String lastPart=sc.getUpTo();
+      float lastPartWidth=fi.getWidth(lastPart);
+      if (lineWidth+lastPartWidth>width && lineWidth>0){
+        if (lastPartWidth > width && lineWidth+(width/4) < width) {
+          lastPart=sb.toString()+lastPart;
+          lastPartWidth=fi.getWidth(lastPart);
+        }
+        else
+          lines.add(sb.toString());
+        lineWidth=0;
+        sb.setLength(0);
+      }
+      if (lastPartWidth>width && lineWidth==0)
+        while (lastPartWidth>width) {
+          int brake=legacyGetBreak(fi, lastPart, width);
+          lines.add(lastPart.substring(0,brake)+"-");
+          lastPart=lastPart.substring(brake);
+          lastPartWidth=fi.getWidth(lastPart);
+        }
+      if (!lastPart.equals("")){
+        lineWidth+=lastPartWidth+spaceWidth;
+        sb.append(lastPart);
+        sb.append(" ");
+      }
+    }
+    if (sb.length()>0)
+      lines.add(sb.toString());
+    return lines;
+  }
+
+  private static String[] legacySplit(FontInfo fi, String str, float width) {
+    String[] result={null, null};
+    float allWidth=fi.getWidth(str);
+    if (allWidth<width) {
+      result[0]=str;
+      return result;
+    }
+    StringChunker sc=new StringChunker(str);
+    StringBuilder sb=new StringBuilder();
+    float lineWidth=0;
+    float spaceWidth=fi.getWidth(' ');
+    while (sc.findOrFinish(" ")) {
+      String lastPart=sc.getUpTo();
+      float lastPartWidth=fi.getWidth(lastPart);
+      if (lineWidth+lastPartWidth>width){
+        if (sb.length()!=0) {
+          result[0]=sb.toString();
+          result[1]=lastPart+" "+sc.getRest();
+        }
+        else{
+          int brake=legacyGetBreak(fi, str, width);
+          result[0]=str.substring(0, brake)+"-";
+          result[1]=str.substring(brake);
+        }
+        return result;
+      }
+      lineWidth+=lastPartWidth+spaceWidth;
+      sb.append(lastPart);
+      sb.append(" ");
+    }
+    result[0]=str;
+    return result;
+  }
+
+  private static int legacyGetBreak(FontInfo fi, String s, float width) {
+    float lineWidth=fi.getWidth('-');
+    int len=s.length();
+    for (int i=0; i<len; i++) {
+      lineWidth+=fi.getWidth(s.charAt(i));
+      if (lineWidth>width)
+        return i;
+    }
+    return len;
+  }
+}
@@ -0,0 +1,91 @@
+package org.tmotte.pdfrpt.test.report;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import org.tmotte.pdfrpt.FontInfo;
+import org.tmotte.pdfrpt.PageInfo;
+import org.tmotte.pdfrpt.SimplePDF;
+import org.tmotte.pdfrpt.report.PGroup;
+import org.tmotte.pdfrpt.report.PageCount;
+import org.tmotte.pdfrpt.report.Report;
+import org.tmotte.pdfrpt.report.ReportItem;
+import org.tmotte.pdfrpt.report.item.PImage;
+import org.tmotte.pdfrpt.report.item.PLine;
+import org.tmotte.pdfrpt.report.item.PRect;
+import org.tmotte.pdfrpt.report.item.PText;
+import org.tmotte.pdfrpt.report.item.PTextLines;
+import org.tmotte.pdfrpt.test.ITest;
+
+/**
+ * Verifies that <code>ReportItem.estimateRetainedBytes()</code> &amp; <code>Report.getMemoryEstimate()</code> add
+ * up, that an item added over &amp; over is counted once, and that the estimate stays flat when streaming; TestMemory
+ * checks it against the real heap.
+ */
+public class TestMemoryEstimate implements ITest {
+
+  public static void main(String[] args) throws Exception {
+    new TestMemoryEstimate().test();
+  }
+
+  public @Override void test() throws Exception {
+    FontInfo font=new FontInfo().setFontSize(9).freeze();
+
+    //Items:
+    PText shortText=new PText(font, "Short"), longText=new PText(font, "A much longer piece of text than the other one");
+    if (longText.estimateRetainedBytes()-shortText.estimateRetainedBytes()<32)
+      throw new RuntimeException("Text should be counted");
+    PTextLines lines=new PTextLines(font, 100, "Enough words to wrap onto several lines when the width is small");
+    if (lines.getLines().length<2 || lines.estimateRetainedBytes()<lines.getLines().length*40)
+      throw new RuntimeException("Every line should be counted: "+lines.estimateRetainedBytes());
+    ReportItem[] items={shortText, lines, new PLine(100, 0), new PRect(10, 10)};
+    PGroup group=new PGroup(PGroup.Vertical, items);
+    long sum=0;
+    for (ReportItem item: items)
+      sum+=item.estimateRetainedBytes();
+    if (group.estimateRetainedBytes()<=sum || group.estimateRetainedBytes()>sum+200)
+      throw new RuntimeException("Group should be its items plus a little: "+group.estimateRetainedBytes()+" vs "+sum);
+
+    //Images, where copies share their data:
+    PImage image=new PImage(new File("./lib/images/test2.jpg").toURI().toURL()), copy=new PImage(image);
+    int data=image.getImage().getRawData().length;
+    if (image.estimateRetainedBytes()<data || copy.estimateRetainedBytes()>=data)
+      throw new RuntimeException("Image data should be counted once: "+image.estimateRetainedBytes()+", "+copy.estimateRetainedBytes());
+
+    //Shared items, like a footer on every page, are counted in full only once:
+    StringBuilder sb=new StringBuilder();
+    for (int i=0; i<40; i++)
+      sb.append("Footer text ");
+    PText footer=new PText(font, sb.toString());
+    PGroup shared=new PGroup();
+    for (int i=0; i<50; i++)
+      shared.add(footer);
+    if (shared.estimateRetainedBytes()>footer.estimateRetainedBytes()+400)
+      throw new RuntimeException("Footer should be counted once: "+shared.estimateRetainedBytes()+" vs "+footer.estimateRetainedBytes());
+    long withFooter=layout(font, false, 2000, footer), withoutFooter=layout(font, false, 2000, null);
+    if (withFooter-withoutFooter>2*footer.estimateRetainedBytes())
+      throw new RuntimeException("Footer on every page should be counted once: "+withFooter+" vs "+withoutFooter);
+
+    //Reports grow, unless streaming:
+    long plain=layout(font, false, 2000, null), half=layout(font, false, 1000, null),
+      streaming=layout(font, true, 2000, footer);
+    if (plain<half*19/10)
+      throw new RuntimeException("Expected growth: "+half+" then "+plain);
+    if (streaming*10>plain)
+      throw new RuntimeException("Streaming should only hold one page: "+streaming+" vs "+plain);
+  }
+
+  private static long layout(FontInfo font, boolean streaming, int rows, PText footer) throws Exception {
+    try (SimplePDF pdf=new SimplePDF(new ByteArrayOutputStream(), new PageInfo(PageInfo.LETTER_PORTRAIT, 30))) {
+      Report report=new Report(pdf);
+      if (streaming)
+        report.setStreaming(pdf);
+      PageCount pageCount=new PageCount();
+      PText header=new PText(font, "Header");
+      report.add(header);
+      for (int i=0; i<rows; i++)
+        report.addVertical(new PGroup(PGroup.Horizontal, new PText(font, 100, "Row "+i), new PLine(0, 10)), pageCount, footer, header);
+      long estimate=report.getMemoryEstimate();
+      report.print(pdf);
+      return estimate;
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package org.tmotte.pdfrpt.test.report;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.parser.PdfTextExtractor;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.tmotte.pdfrpt.FontInfo;
+import org.tmotte.pdfrpt.PageInfo;
+import org.tmotte.pdfrpt.report.item.PImage;
+import org.tmotte.pdfrpt.report.item.PLine;
+import org.tmotte.pdfrpt.report.item.PRect;
+import org.tmotte.pdfrpt.report.item.PText;
+import org.tmotte.pdfrpt.report.item.PTextLines;
+import org.tmotte.pdfrpt.report.PageCount;
+import org.tmotte.pdfrpt.report.PGroup;
+import org.tmotte.pdfrpt.report.PTemplate;
+import org.tmotte.pdfrpt.report.Report;
+import org.tmotte.pdfrpt.SimplePDF;
+import org.tmotte.pdfrpt.test.ITest;
+import org.tmotte.pdfrpt.test.PDFAssert;
+
+/**
+ * Prints the same report with its header &amp; footer in plain PGroups and in PTemplates, and verifies that the
+ * latter has the same text on every page, page numbers included, while being smaller; then shares one PTemplate
+ * between reports printed on several threads at once.
+ */
+public class TestPTemplate implements ITest {
+
+  public static void main(String[] args) throws Exception {
+    new TestPTemplate().test();
+  }
+
+  public @Override void test() throws Exception {
+    File plain=new File("build", getClass().getName()+".plain.pdf"),
+         templated=new File("build", getClass().getName()+".pdf");
+    print(plain, false);
+    print(templated, true);
+
+    PdfReader a=new PdfReader(plain.getPath()), b=new PdfReader(templated.getPath());
+    if (a.getNumberOfPages()!=b.getNumberOfPages() || a.getNumberOfPages()<5)
+      throw new RuntimeException("Got "+b.getNumberOfPages()+" pages, expected "+a.getNumberOfPages());
+    for (int p=1; p<=a.getNumberOfPages(); p++) {
+      String expected=PdfTextExtractor.getTextFromPage(a, p), got=PdfTextExtractor.getTextFromPage(b, p);
+      if (!expected.equals(got))
+        throw new RuntimeException("Page "+p+":\n"+got+"\nexpected\n"+expected);
+      if (!new String(b.getPageContent(p), "ISO-8859-1").contains(" Do"))
+        throw new RuntimeException("Page "+p+" does not use a template");
+    }
+    a.close();
+    b.close();
+    if (templated.length()>=plain.length())
+      throw new RuntimeException("Expected "+templated.length()+" bytes to be less than "+plain.length());
+
+    testShared();
+  }
+
+  private void testShared() throws Exception {
+    final FontInfo font=new FontInfo().setFontSize(9).freeze();
+    final PTemplate header=new PTemplate();
+    header.addVertical(
+      new PImage(new File("./lib/images/test2.jpg").toURI().toURL()).resize(40, 40),
+      new PText(font, "Shared header"),
+      new PLine(500, 0).setTop(4)
+    );
+    ExecutorService service=Executors.newFixedThreadPool(4);
+    try {
+      List<Future<byte[]>> results=new ArrayList<>();
+      for (int t=0; t<8; t++)
+        results.add(service.submit(()->{
+          ByteArrayOutputStream out=new ByteArrayOutputStream();
+          try (SimplePDF pdf=new SimplePDF(out, new PageInfo(PageInfo.LETTER_PORTRAIT, 30))) {
+            Report report=new Report(pdf);
+            PageCount pageCount=new PageCount();
+            report.addVertical(header);
+            for (int i=0; i<300; i++)
+              report.addVertical(new PText(font, "Line "+i), pageCount, null, header);
+            report.print(pdf);
+          }
+          return out.toByteArray();
+        }));
+      PdfReader first=new PdfReader(results.get(0).get());
+      for (int p=1; p<=first.getNumberOfPages(); p++)
+        if (!PdfTextExtractor.getTextFromPage(first, p).startsWith("Shared header"))
+          throw new RuntimeException("No header on page "+p);
+      first.close();
+      for (int i=1; i<results.size(); i++)
+        PDFAssert.assertSameContent(results.get(0).get(), results.get(i).get(), "Thread "+i);
+    } finally {
+      service.shutdown();
+    }
+  }
+
+  private void print(File file, boolean templates) throws Exception {
+    try (SimplePDF pdf=new SimplePDF(new FileOutputStream(file), new PageInfo(PageInfo.LETTER_PORTRAIT, 30))) {
+      FontInfo font=new FontInfo().setFontSize(9),
+               big=new FontInfo(font).setFontSize(16).setColor(20, 60, 120);
+      PageCount pageCount=new PageCount();
+      PImage logo=new PImage(new File("./lib/images/test2.jpg").toURI().toURL()).resize(40, 40);
+      PGroup header=templates ?new PTemplate() :new PGroup();
+      header.addHorizontal(
+        logo,
+        new PRect().setRounded(3).setLineWidth(2).setColor(200, 80, 20).enclose(
+          4, new PTextLines(big, "Quarterly Results", "Continued from the previous page")
+        ).setLeft(10)
+      );
+      header.addVertical(new PLine(pdf.getWidth(), 0).setLineWidth(3).setTop(4));
+      PGroup footer=templates ?new PTemplate() :new PGroup();
+      footer.addVertical(
+        new PLine(pdf.getWidth(), 0),
+        new PText(font, pdf.getWidth(), "Confidential").center().setTop(2)
+      );
+      footer.add(
+        new PText(font, pdf.getWidth(), "Page "+PText.REPLACE_CURR_PAGE+" of "+PText.REPLACE_PAGE_COUNT)
+          .rightAlign().setPageCount(pageCount).setTop(2)
+      );
+
+      Report report=new Report(pdf);
+      report.addVertical(header);
+      for (int i=0; i<300; i++)
+        report.addVertical(new PText(font, "Line "+i), pageCount, footer, header);
+      report.addFooterAndPrint(footer, pdf);
+    }
+  }
+}
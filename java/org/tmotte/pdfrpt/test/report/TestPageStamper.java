@@ -0,0 +1,136 @@
+package org.tmotte.pdfrpt.test.report;
+import com.itextpdf.text.pdf.PdfContentByte;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.parser.PdfTextExtractor;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.tmotte.pdfrpt.FontInfo;
+import org.tmotte.pdfrpt.PageInfo;
+import org.tmotte.pdfrpt.SimplePDF;
+import org.tmotte.pdfrpt.report.PageCount;
+import org.tmotte.pdfrpt.report.PageStamper;
+import org.tmotte.pdfrpt.report.Report;
+import org.tmotte.pdfrpt.report.item.PText;
+import org.tmotte.pdfrpt.report.item.PTextLines;
+import org.tmotte.pdfrpt.test.ITest;
+
+/**
+ * Verifies that a streaming Report with a stamped PageCount, stamped afterwards by a PageStamper, reads the same
+ * as a Report printed all at once with an ordinary PageCount.
+ */
+public class TestPageStamper implements ITest {
+
+  public static void main(String[] args) throws Exception {
+    new TestPageStamper().test();
+  }
+
+  private final static String numbers="Page "+PText.REPLACE_CURR_PAGE+" of "+PText.REPLACE_PAGE_COUNT;
+
+  public @Override void test() throws Exception {
+    PageInfo pageInfo=new PageInfo(PageInfo.LETTER_PORTRAIT, 30);
+    FontInfo font=new FontInfo().setFontSize(9).freeze();
+    PageStamper stamper=new PageStamper(pageInfo, font, numbers)
+      .setXY(pageInfo.getWidth(), pageInfo.getHeight()-font.getTextLineHeight())
+      .rightAlign();
+
+    //The usual way:
+    ByteArrayOutputStream expected=new ByteArrayOutputStream();
+    try (SimplePDF pdf=new SimplePDF(expected, pageInfo)) {
+      print(pdf, font, false);
+    }
+
+    //Streaming to a file, then stamping:
+    Path temp=Files.createTempFile("pdfrpt-stamp", ".pdf");
+    ByteArrayOutputStream stamped=new ByteArrayOutputStream();
+    try {
+      try (SimplePDF pdf=new SimplePDF(Files.newOutputStream(temp), pageInfo)) {
+        print(pdf, font, true);
+      }
+      PdfReader unstamped=new PdfReader(temp.toString());
+      for (int p=1; p<=unstamped.getNumberOfPages(); p++)
+        if (PdfTextExtractor.getTextFromPage(unstamped, p).contains("Page "))
+          throw new RuntimeException("Page numbers should be left out before stamping, page "+p);
+      unstamped.close();
+      int pages=stamper.stamp(temp, stamped);
+      if (pages<3)
+        throw new RuntimeException("Expected several pages, got "+pages);
+    } finally {
+      Files.delete(temp);
+    }
+    try (FileOutputStream out=new FileOutputStream(new File("build", getClass().getName()+".pdf"))) {
+      out.write(stamped.toByteArray());
+    }
+    compare(expected.toByteArray(), stamped.toByteArray());
+
+    //From memory:
+    ByteArrayOutputStream again=new ByteArrayOutputStream();
+    stamper.stamp(stamped.toByteArray(), again);
+    PdfReader reader=new PdfReader(again.toByteArray());
+    String text=PdfTextExtractor.getTextFromPage(reader, 1);
+    if (text.indexOf("Page 1 of")==text.lastIndexOf("Page 1 of"))
+      throw new RuntimeException("Expected a second stamp:\n"+text);
+    reader.close();
+
+    //Failures still close the OutputStream, whether reading or stamping:
+    final boolean[] closed={false};
+    ByteArrayOutputStream failed=new ByteArrayOutputStream() {
+      public @Override void close() {
+        closed[0]=true;
+      }
+    };
+    try {
+      stamper.stamp("Not a PDF".getBytes("ISO-8859-1"), failed);
+      throw new IllegalStateException("Expected a failure to read");
+    } catch (IllegalStateException e) {
+      throw e;
+    } catch (Exception e) {}
+    if (!closed[0])
+      throw new RuntimeException("OutputStream not closed after a failure to read");
+    closed[0]=false;
+    PageStamper failing=new PageStamper(pageInfo, font, numbers) {
+      public @Override void stamp(PdfContentByte cb, int page, int total) {
+        if (page==2)
+          throw new IllegalArgumentException("Expected");
+        super.stamp(cb, page, total);
+      }
+    };
+    try {
+      failing.stamp(stamped.toByteArray(), failed);
+      throw new IllegalStateException("Expected a failure to stamp");
+    } catch (IllegalArgumentException e) {}
+    if (!closed[0])
+      throw new RuntimeException("OutputStream not closed after a failure to stamp");
+  }
+
+  private static void print(SimplePDF pdf, FontInfo font, boolean stamped) throws Exception {
+    Report report=new Report(pdf);
+    if (stamped)
+      report.setStreaming(pdf);
+    PageCount pageCount=new PageCount().setStamped(stamped);
+    PText header=new PText(font, pdf.getWidth(), "Header").setPageCount(pageCount);
+    PTextLines footer=new PTextLines(font, "Confidential", numbers).setPageCount(pageCount).rightAlign();
+    footer.setWidth(pdf.getWidth());
+    report.add(header);
+    for (int i=0; i<300; i++)
+      report.addVertical(new PText(font, "Record "+i), pageCount, footer, header);
+    report.addFooterAndPrint(footer, pdf);
+  }
+
+  private static void compare(byte[] expected, byte[] actual) throws Exception {
+    PdfReader a=new PdfReader(expected), b=new PdfReader(actual);
+    if (a.getNumberOfPages()!=b.getNumberOfPages())
+      throw new RuntimeException("Got "+b.getNumberOfPages()+" pages, expected "+a.getNumberOfPages());
+    for (int p=1; p<=a.getNumberOfPages(); p++) {
+      String ta=PdfTextExtractor.getTextFromPage(a, p), tb=PdfTextExtractor.getTextFromPage(b, p);
+      if (!ta.equals(tb))
+        throw new RuntimeException("Page "+p+" differs; expected:\n"+ta+"\ngot:\n"+tb);
+      if (!tb.contains("Page "+p+" of "+b.getNumberOfPages()))
+        throw new RuntimeException("No page number on page "+p+":\n"+tb);
+    }
+    a.close();
+    b.close();
+  }
+}
@@ -0,0 +1,91 @@
+package org.tmotte.pdfrpt.test.report;
+import com.itextpdf.text.Image;
+import com.itextpdf.text.pdf.PdfReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import org.tmotte.pdfrpt.FontInfo;
+import org.tmotte.pdfrpt.PageInfo;
+import org.tmotte.pdfrpt.RenderStats;
+import org.tmotte.pdfrpt.SimplePDF;
+import org.tmotte.pdfrpt.report.PGroup;
+import org.tmotte.pdfrpt.report.PageCount;
+import org.tmotte.pdfrpt.report.Report;
+import org.tmotte.pdfrpt.report.item.PLine;
+import org.tmotte.pdfrpt.report.item.PText;
+import org.tmotte.pdfrpt.test.ITest;
+
+/**
+ * Verifies that RenderStats counts drawing exactly, accounts for every page's bytes, and gets layout, print
+ * &amp; close times from a streaming Report.
+ */
+public class TestRenderStats implements ITest {
+
+  public static void main(String[] args) throws Exception {
+    new TestRenderStats().test();
+  }
+
+  public @Override void test() throws Exception {
+    //Exact counts:
+    ByteArrayOutputStream out=new ByteArrayOutputStream();
+    RenderStats stats=new RenderStats();
+    try (SimplePDF pdf=new SimplePDF(out, new PageInfo(PageInfo.LETTER_PORTRAIT, 30))) {
+      pdf.setRenderStats(stats);
+      pdf.draw("One").lineFeed().draw("Two").lineFeed().drawLine(100, 0).moveY(5).fillRect(20, 20).moveY(25);
+      pdf.newPage();
+      pdf.setXY(0, 0).setColor(200, 0, 0).draw("Three").lineFeed().drawRect(50, 50).moveY(55);
+      Image image=SimplePDF.loadImage(new File("./lib/images/test2.jpg").toPath());
+      image.scaleToFit(100, 100);
+      pdf.draw(image);
+      pdf.drawPageTotal();
+    }
+    check("text", stats.getTextDraws(), 3);
+    check("paths", stats.getPathOps(), 3);
+    check("images", stats.getImages(), 1);
+    check("templates", stats.getTemplates(), 1);
+    check("pages", stats.getPageCount(), 2);
+    check("bytes", stats.getTotalBytes(), out.size());
+    if (stats.getStateChanges()<3)
+      throw new RuntimeException("Expected state changes, got "+stats.getStateChanges());
+    //The image is written on the second page:
+    if (stats.getPageBytes(2)<stats.getPageBytes(1)+10000)
+      throw new RuntimeException("Page bytes: "+stats.getPageBytes(1)+", "+stats.getPageBytes(2));
+
+    //A streaming Report:
+    File file=new File("build", getClass().getName()+".pdf");
+    stats=new RenderStats();
+    try (SimplePDF pdf=new SimplePDF(new FileOutputStream(file), new PageInfo(PageInfo.LETTER_PORTRAIT, 30))) {
+      pdf.setRenderStats(stats);
+      FontInfo font=pdf.getFontInfo();
+      Report report=new Report(pdf).setStreaming(pdf);
+      PageCount pageCount=new PageCount();
+      PText header=new PText(font, pdf.getWidth(), "Header");
+      PLine footer=new PLine(pdf.getWidth(), 0);
+      report.add(header);
+      for (int i=0; i<500; i++)
+        report.addVertical(
+          new PGroup(PGroup.Horizontal, new PText(font, 100, "Row "+i), new PText(font, 100, "Value "+i*7)),
+          pageCount, footer, header
+        );
+      report.addFooterAndPrint(footer, pdf);
+    }
+    PdfReader reader=new PdfReader(file.getPath());
+    check("pages", stats.getPageCount(), reader.getNumberOfPages());
+    reader.close();
+    check("bytes", stats.getTotalBytes(), file.length());
+    long pageTotal=0;
+    for (int p=1; p<=stats.getPageCount(); p++)
+      pageTotal+=stats.getPageBytes(p);
+    if (pageTotal>=stats.getTotalBytes())
+      throw new RuntimeException("Page bytes "+pageTotal+" should be less than the total "+stats.getTotalBytes());
+    if (stats.getTextDraws()<1000 || stats.getPathOps()!=stats.getPageCount())
+      throw new RuntimeException(stats.toString());
+    if (stats.getLayoutNanos()<=0 || stats.getPrintNanos()<=0 || stats.getCloseNanos()<=0)
+      throw new RuntimeException("Expected times: "+stats);
+  }
+
+  private static void check(String name, long actual, long expected) {
+    if (actual!=expected)
+      throw new RuntimeException(name+": expected "+expected+", got "+actual);
+  }
+}
@@ -0,0 +1,130 @@
+package org.tmotte.pdfrpt.test.report;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.tmotte.pdfrpt.FontCatalog;
+import org.tmotte.pdfrpt.FontInfo;
+import org.tmotte.pdfrpt.PageInfo;
+import org.tmotte.pdfrpt.report.item.PLine;
+import org.tmotte.pdfrpt.report.item.PText;
+import org.tmotte.pdfrpt.report.item.PTextLines;
+import org.tmotte.pdfrpt.report.PageCount;
+import org.tmotte.pdfrpt.report.PGroup;
+import org.tmotte.pdfrpt.report.Report;
+import org.tmotte.pdfrpt.report.ReportExecutor;
+import org.tmotte.pdfrpt.report.ReportItem;
+import org.tmotte.pdfrpt.SimplePDF;
+import org.tmotte.pdfrpt.test.ITest;
+import org.tmotte.pdfrpt.test.PDFAssert;
+
+/**
+ * Stress-tests ReportExecutor: a batch of "invoices" sharing frozen fonts is generated on several threads, and
+ * every page of every PDF must have exactly the same content stream as when generated one at a time.
+ * (The PDF files themselves can't match byte for byte, since iText puts a unique ID, timestamps and random
+ * font subset prefixes in every file.)
+ * As a command-line program, prints throughput for a range of thread counts; the arguments are the number of
+ * invoices and the maximum thread count.
+ */
+public class TestReportExecutor implements ITest {
+
+  public static void main(String[] args) throws Exception {
+    int count=args.length>0 ?Integer.parseInt(args[0]) :500,
+        maxThreads=args.length>1 ?Integer.parseInt(args[1]) :Runtime.getRuntime().availableProcessors();
+    TestReportExecutor test=new TestReportExecutor();
+    List<ReportExecutor.Job> jobs=test.makeJobs(count);
+    for (int threads=1; threads<=maxThreads; threads*=2) {
+      ReportExecutor executor=new ReportExecutor(threads);
+      executor.run(jobs, i->new ByteArrayOutputStream());//Warmup
+      System.out.println(threads+" threads: "+executor.run(jobs, i->new ByteArrayOutputStream()));
+      executor.shutdown();
+    }
+  }
+
+  FontInfo font, bold;
+
+  public @Override void test() throws Exception {
+    List<ReportExecutor.Job> jobs=makeJobs(60);
+    try {
+      font.setFontSize(3);
+      throw new RuntimeException("Expected frozen FontInfo to refuse changes");
+    } catch (UnsupportedOperationException e) {
+    }
+
+    //One at a time:
+    byte[][] expected=new byte[jobs.size()][];
+    for (int i=0; i<jobs.size(); i++) {
+      ByteArrayOutputStream out=new ByteArrayOutputStream();
+      try (SimplePDF pdf=new SimplePDF(out, new PageInfo())) {
+        jobs.get(i).print(pdf);
+      }
+      expected[i]=out.toByteArray();
+    }
+
+    //All at once:
+    final ByteArrayOutputStream[] outs=new ByteArrayOutputStream[jobs.size()];
+    ReportExecutor executor=new ReportExecutor(6);
+    try {
+      ReportExecutor.Batch batch=executor.run(jobs, i->outs[i]=new ByteArrayOutputStream());
+      if (!batch.getFailures().isEmpty())
+        throw batch.getFailures().values().iterator().next();
+      if (batch.getCount()!=jobs.size())
+        throw new RuntimeException("Wrong count: "+batch);
+    } finally {
+      executor.shutdown();
+    }
+    for (int i=0; i<jobs.size(); i++)
+      PDFAssert.assertSameContent(expected[i], outs[i].toByteArray(), "Report "+i);
+  }
+
+
+  ///////////////
+  // INVOICES: //
+  ///////////////
+
+  List<ReportExecutor.Job> makeJobs(int count) throws Exception {
+    FontCatalog fonts=FontCatalog.getDefault();
+    font=new FontInfo(fonts.getFont("Test2Reg.ttf", new File("./lib/fonts/nobile.ttf")), 9).freeze();
+    bold=new FontInfo(fonts.getFont("Test2Bold.ttf", new File("./lib/fonts/nobile_bold.ttf")), 12).freeze();
+    List<ReportExecutor.Job> jobs=new ArrayList<>();
+    for (int i=0; i<count; i++) {
+      final int invoice=i;
+      jobs.add(pdf->printInvoice(pdf, invoice));
+    }
+    return jobs;
+  }
+
+  private void printInvoice(SimplePDF pdf, int invoice) throws Exception {
+    Random random=new Random(invoice);
+    pdf.setFontInfo(font);
+    float width=pdf.getWidth();
+    PageCount pageCount=new PageCount();
+    ReportItem
+      header=new PGroup().addVertical(
+        new PText(bold, width, "Invoice #"+invoice)
+        ,new PLine(width, 0).setTop(2).setHeight(4)
+      ),
+      footer=new PText(
+          new FontInfo(font, 7), width, "Page "+PText.REPLACE_CURR_PAGE+" of "+PText.REPLACE_PAGE_COUNT
+        ).setPageCount(pageCount).rightAlign().setTop(4);
+    Report report=new Report(pdf);
+    report.add(header);
+    int lines=5+random.nextInt(150);
+    for (int i=0; i<lines; i++) {
+      StringBuilder desc=new StringBuilder();
+      for (int w=random.nextInt(30); w>=0; w--)
+        desc.append(Integer.toString(random.nextInt(1<<20), 36)).append(' ');
+      report.addVertical(
+        new PGroup(
+          PGroup.Horizontal
+          ,new PText(font, 40, String.valueOf(i+1))
+          ,new PTextLines(font, width-120, desc.toString())
+          ,new PText(font, 80, String.format("%.2f", random.nextInt(100000)/100.0)).rightAlign()
+        ).setTop(2),
+        pageCount, footer, header
+      );
+    }
+    report.addFooterAndPrint(footer, pdf);
+  }
+}
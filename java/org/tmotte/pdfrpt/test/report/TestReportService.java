@@ -0,0 +1,222 @@
+package org.tmotte.pdfrpt.test.report;
+import com.itextpdf.text.pdf.PdfReader;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.tmotte.pdfrpt.FontInfo;
+import org.tmotte.pdfrpt.SimplePDF;
+import org.tmotte.pdfrpt.report.PageCount;
+import org.tmotte.pdfrpt.report.Report;
+import org.tmotte.pdfrpt.report.ReportExecutor;
+import org.tmotte.pdfrpt.report.ReportService;
+import org.tmotte.pdfrpt.report.item.PText;
+import org.tmotte.pdfrpt.test.ITest;
+
+/**
+ * Verifies ReportService's admission control &amp; metrics, and that output reaches a client, here a thread
+ * reading from a pipe, while the report is still being rendered.
+ */
+public class TestReportService implements ITest {
+
+  public static void main(String[] args) throws Exception {
+    new TestReportService().test();
+  }
+
+  public @Override void test() throws Exception {
+    testStreaming();
+    testAdmission();
+    testMaxWait();
+    testInterrupted();
+  }
+
+  /**
+   * The client must receive the first pages before the render is allowed to finish. iText buffers up to 8K
+   * before writing to our OutputStream, so that much may be missing.
+   */
+  private void testStreaming() throws Exception {
+    ReportService service=new ReportService(2, 2);
+    try {
+      final PipedInputStream in=new PipedInputStream(8192);
+      PipedOutputStream out=new PipedOutputStream(in);
+      final AtomicLong received=new AtomicLong();
+      Thread client=new Thread(()->{
+        try (InputStream is=in) {
+          byte[] buf=new byte[4096];
+          for (int n; (n=is.read(buf))!=-1;)
+            received.addAndGet(n);
+        } catch (Exception e) {
+          throw new RuntimeException(e);
+        }
+      });
+      client.start();
+      CompletableFuture<Long> result=service.submit(pdf->{
+        Report report=new Report(pdf).setStreaming(pdf);
+        PageCount pageCount=new PageCount();
+        FontInfo font=pdf.getFontInfo();
+        PText header=new PText(font, "Header");
+        report.add(header);
+        boolean checked=false;
+        for (int i=0; i<20000; i++) {
+          report.addVertical(new PText(font, "Line "+i), pageCount, null, header);
+          long written=pdf.getBytesWritten();
+          if (!checked && written>32768) {
+            checked=true;
+            for (int wait=0; received.get()<written-8192; wait++)
+              if (wait==1000)
+                throw new RuntimeException("Client has "+received.get()+" of "+written+" bytes written so far");
+              else
+                Thread.sleep(10);
+          }
+        }
+        if (!checked)
+          throw new RuntimeException("Not enough output to check");
+        report.print(pdf);
+      }, out);
+      long bytes=result.get(30, TimeUnit.SECONDS);
+      client.join(10000);
+      if (received.get()!=bytes)
+        throw new RuntimeException("Client received "+received.get()+" of "+bytes+" bytes");
+    } finally {
+      service.shutdown();
+    }
+  }
+
+  private void testAdmission() throws Exception {
+    ReportService service=new ReportService(1, 1);
+    try {
+      CountDownLatch release=new CountDownLatch(1);
+      ByteArrayOutputStream out=new ByteArrayOutputStream();
+      CompletableFuture<Long>
+        a=service.submit(blocking(release), out),
+        b=service.submit(simple(), new ByteArrayOutputStream());
+      waitFor(service, 1, 1);
+
+      //Full:
+      try {
+        service.submit(simple(), new ByteArrayOutputStream());
+        throw new IllegalStateException("Expected a rejection");
+      } catch (RejectedExecutionException e) {}
+
+      //Light renders don't wait:
+      service.submit(simple(), new ByteArrayOutputStream(), false).get(10, TimeUnit.SECONDS);
+
+      release.countDown();
+      a.get(10, TimeUnit.SECONDS);
+      b.get(10, TimeUnit.SECONDS);
+
+      //Failures are reported:
+      CompletableFuture<Long> c=service.submit(pdf->{throw new IllegalArgumentException("Expected");}, new ByteArrayOutputStream());
+      try {
+        c.get(10, TimeUnit.SECONDS);
+        throw new IllegalStateException("Expected a failure");
+      } catch (ExecutionException e) {
+        if (!(e.getCause() instanceof IllegalArgumentException))
+          throw e;
+      }
+      new PdfReader(out.toByteArray()).close();
+
+      ReportService.Metrics m=service.getMetrics();
+      if (m.getSubmitted()!=5 || m.getRejected()!=1 || m.getCompleted()!=3 || m.getFailed()!=1
+          || m.getQueued()!=0 || m.getRunning()!=0 || m.getMaxWaitNanos()<=0 || m.getBytes()<out.size())
+        throw new RuntimeException("Unexpected metrics: "+m);
+    } finally {
+      service.shutdown();
+    }
+  }
+
+  private void testMaxWait() throws Exception {
+    ReportService service=new ReportService(1, 5).setMaxWait(50, TimeUnit.MILLISECONDS);
+    try {
+      CountDownLatch release=new CountDownLatch(1);
+      final boolean[] closed={false};
+      CompletableFuture<Long> a=service.submit(blocking(release), new ByteArrayOutputStream());
+      waitFor(service, 1, 0);
+      CompletableFuture<Long> b=service.submit(simple(), new ByteArrayOutputStream() {
+        public @Override void close() {
+          closed[0]=true;
+        }
+      });
+      try {
+        b.get(10, TimeUnit.SECONDS);
+        throw new IllegalStateException("Expected a time out");
+      } catch (ExecutionException e) {
+        if (!(e.getCause() instanceof RejectedExecutionException))
+          throw e;
+      }
+      release.countDown();
+      a.get(10, TimeUnit.SECONDS);
+      if (!closed[0])
+        throw new RuntimeException("OutputStream should be closed after a time out");
+      if (service.getMetrics().getTimedOut()!=1)
+        throw new RuntimeException("Unexpected metrics: "+service.getMetrics());
+    } finally {
+      service.shutdown();
+    }
+  }
+
+  /**
+   * A render interrupted while waiting for its turn closes its OutputStream and counts as interrupted, not
+   * failed, so it doesn't skew the render times.
+   */
+  private void testInterrupted() throws Exception {
+    ExecutorService threads=Executors.newCachedThreadPool();
+    ReportService service=new ReportService(threads, 1, 1);
+    CountDownLatch release=new CountDownLatch(1);
+    final boolean[] closed={false};
+    CompletableFuture<Long> a=service.submit(blocking(release), new ByteArrayOutputStream());
+    waitFor(service, 1, 0);
+    CompletableFuture<Long> b=service.submit(simple(), new ByteArrayOutputStream() {
+      public @Override void close() {
+        closed[0]=true;
+      }
+    });
+    waitFor(service, 1, 1);
+    threads.shutdownNow();
+    try {
+      b.get(10, TimeUnit.SECONDS);
+      throw new IllegalStateException("Expected an interruption");
+    } catch (ExecutionException e) {
+      if (!(e.getCause() instanceof InterruptedException))
+        throw e;
+    }
+    try {
+      a.get(10, TimeUnit.SECONDS);
+    } catch (ExecutionException e) {
+      //The blocking job is interrupted too, and fails.
+    }
+    if (!closed[0])
+      throw new RuntimeException("OutputStream should be closed after an interruption");
+    ReportService.Metrics m=service.getMetrics();
+    if (m.getInterrupted()!=1 || m.getFailed()!=1 || m.getCompleted()!=0 || m.getQueued()!=0)
+      throw new RuntimeException("Unexpected metrics: "+m);
+  }
+
+  private static ReportExecutor.Job simple() {
+    return pdf->pdf.draw("Simple");
+  }
+  private static ReportExecutor.Job blocking(final CountDownLatch release) {
+    return pdf->{
+      pdf.draw("Blocking");
+      if (!release.await(10, TimeUnit.SECONDS))
+        throw new RuntimeException("Never released");
+    };
+  }
+  private static void waitFor(ReportService service, int running, int queued) throws Exception {
+    for (int i=0; i<1000; i++) {
+      ReportService.Metrics m=service.getMetrics();
+      if (m.getRunning()==running && m.getQueued()==queued)
+        return;
+      Thread.sleep(10);
+    }
+    throw new RuntimeException("Expected "+running+" running & "+queued+" queued: "+service.getMetrics());
+  }
+}
@@ -0,0 +1,184 @@
+package org.tmotte.pdfrpt.test.report;
+import com.itextpdf.text.pdf.PdfContentByte;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.parser.PdfTextExtractor;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.tmotte.pdfrpt.FontInfo;
+import org.tmotte.pdfrpt.PageInfo;
+import org.tmotte.pdfrpt.report.PageCount;
+import org.tmotte.pdfrpt.report.PageStamper;
+import org.tmotte.pdfrpt.report.PGroup;
+import org.tmotte.pdfrpt.report.Report;
+import org.tmotte.pdfrpt.report.ReportItem;
+import org.tmotte.pdfrpt.report.ShardedReport;
+import org.tmotte.pdfrpt.report.item.PSpacer;
+import org.tmotte.pdfrpt.report.item.PText;
+import org.tmotte.pdfrpt.test.ITest;
+
+/**
+ * Verifies that ShardedReport merges its shards in order, numbers every page of the result, cleans up after
+ * itself, and reports a failed shard.
+ */
+public class TestShardedReport implements ITest {
+
+  public static void main(String[] args) throws Exception {
+    new TestShardedReport().test();
+  }
+
+  public @Override void test() throws Exception {
+    FontInfo font=new FontInfo().setFontSize(9).freeze();
+    List<Integer> rows=new ArrayList<Integer>();
+    for (int i=0; i<2000; i++)
+      rows.add(i);
+    PageInfo pageInfo=new PageInfo(PageInfo.LETTER_PORTRAIT, 30);
+    ShardedReport sharded=new ShardedReport(4)
+      .setPageInfo(pageInfo)
+      .setShardSize(300)
+      .setPageStamper(
+        new PageStamper(pageInfo, font, "Page "+PText.REPLACE_CURR_PAGE+" of "+PText.REPLACE_PAGE_COUNT)
+          .setXY(pageInfo.getWidth(), pageInfo.getHeight()-font.getTextLineHeight()).rightAlign()
+      );
+    try {
+      for (boolean spooled: new boolean[]{false, true}) {
+        int before=countTempFiles();
+        ByteArrayOutputStream out=new ByteArrayOutputStream();
+        int pages=sharded.setSpooled(spooled).print(rows, (pdf, shardRows, first)->print(pdf, font, shardRows), out);
+        check(out.toByteArray(), pages, rows.size());
+        if (spooled)
+          try (FileOutputStream file=new FileOutputStream(new File("build", getClass().getName()+".pdf"))) {
+            file.write(out.toByteArray());
+          }
+        if (countTempFiles()!=before)
+          throw new RuntimeException("Temporary files were left behind");
+
+        //A failure, which still closes out:
+        final boolean[] closed={false};
+        ByteArrayOutputStream failedOut=new ByteArrayOutputStream() {
+          public @Override void close() {
+            closed[0]=true;
+          }
+        };
+        try {
+          sharded.print(
+            rows,
+            (pdf, shardRows, first)->{
+              if (first==900)
+                throw new IllegalArgumentException("Expected");
+              print(pdf, font, shardRows);
+            },
+            failedOut
+          );
+          throw new RuntimeException("Expected an exception");
+        } catch (IllegalArgumentException e) {
+          if (!e.getMessage().equals("Expected"))
+            throw e;
+        }
+        if (countTempFiles()!=before)
+          throw new RuntimeException("Temporary files were left behind after a failure");
+        if (!closed[0])
+          throw new RuntimeException("OutputStream not closed after a shard failed");
+
+        //A failure while merging:
+        closed[0]=false;
+        ShardedReport failingMerge=new ShardedReport(2).setPageInfo(pageInfo).setShardSize(300).setSpooled(spooled)
+          .setPageStamper(
+            new PageStamper(pageInfo, font, "Page "+PText.REPLACE_CURR_PAGE) {
+              public @Override void stamp(PdfContentByte cb, int page, int total) {
+                if (page==3)
+                  throw new IllegalArgumentException("Expected");
+                super.stamp(cb, page, total);
+              }
+            }
+          );
+        try {
+          failingMerge.print(rows, (pdf, shardRows, first)->print(pdf, font, shardRows), failedOut);
+          throw new RuntimeException("Expected an exception while merging");
+        } catch (IllegalArgumentException e) {
+        } finally {
+          failingMerge.shutdown();
+        }
+        if (!closed[0])
+          throw new RuntimeException("OutputStream not closed after merging failed");
+        if (countTempFiles()!=before)
+          throw new RuntimeException("Temporary files were left behind after merging failed");
+
+        //A later shard failing while an earlier one is still going shouldn't have to wait for it:
+        long start=System.nanoTime();
+        try {
+          sharded.print(
+            rows,
+            (pdf, shardRows, first)->{
+              if (first==0)
+                Thread.sleep(20000);
+              if (first==300)
+                throw new IllegalArgumentException("Expected");
+              print(pdf, font, shardRows);
+            },
+            new ByteArrayOutputStream()
+          );
+          throw new RuntimeException("Expected an exception");
+        } catch (IllegalArgumentException e) {
+          if (!e.getMessage().equals("Expected"))
+            throw e;
+        }
+        long millis=(System.nanoTime()-start)/1000000;
+        if (millis>10000)
+          throw new RuntimeException("Waited "+millis+" ms for the first shard before failing");
+        if (countTempFiles()!=before)
+          throw new RuntimeException("Temporary files were left behind after a late failure");
+      }
+
+      //No rows still makes a document:
+      ByteArrayOutputStream out=new ByteArrayOutputStream();
+      if (sharded.print(new ArrayList<Integer>(), (pdf, shardRows, first)->print(pdf, font, shardRows), out)!=1)
+        throw new RuntimeException("Expected one page");
+      check(out.toByteArray(), 1, 0);
+    } finally {
+      sharded.shutdown();
+    }
+  }
+
+  private static void print(org.tmotte.pdfrpt.SimplePDF pdf, FontInfo font, List<Integer> rows) throws Exception {
+    Report report=new Report(pdf).setStreaming(pdf);
+    PageCount pageCount=new PageCount();
+    PText header=new PText(font, "Sharded");
+    ReportItem footer=new PSpacer().setWidth(pdf.getWidth()).setHeight(font.getTextLineHeight());
+    report.add(header);
+    report.addRows(
+      rows.iterator(),
+      row->new PGroup(PGroup.Horizontal, new PText(font, 100, "Row "+row), new PText(font, 100, "Value "+row*3)),
+      pageCount, footer, header
+    );
+    report.addFooterAndPrint(footer, pdf);
+  }
+
+  private static void check(byte[] pdf, int pages, int rows) throws Exception {
+    PdfReader reader=new PdfReader(pdf);
+    if (reader.getNumberOfPages()!=pages)
+      throw new RuntimeException("Got "+reader.getNumberOfPages()+" pages, expected "+pages);
+    int next=0;
+    for (int p=1; p<=pages; p++) {
+      String text=PdfTextExtractor.getTextFromPage(reader, p);
+      if (!text.contains("Page "+p+" of "+pages))
+        throw new RuntimeException("No page number on page "+p+":\n"+text);
+      for (String line: text.split("\n"))
+        if (line.startsWith("Row ")) {
+          int row=Integer.parseInt(line.substring(4, line.indexOf(' ', 4)));
+          if (row!=next++)
+            throw new RuntimeException("Expected row "+(next-1)+" but got "+row+" on page "+p);
+        }
+    }
+    reader.close();
+    if (next!=rows)
+      throw new RuntimeException("Got "+next+" rows, expected "+rows);
+  }
+
+  private static int countTempFiles() {
+    String[] names=new File(System.getProperty("java.io.tmpdir")).list((dir, name)->name.startsWith("pdfrpt-shard"));
+    return names==null ?0 :names.length;
+  }
+}
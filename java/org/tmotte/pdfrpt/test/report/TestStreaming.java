@@ -0,0 +1,79 @@
+package org.tmotte.pdfrpt.test.report;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.parser.PdfTextExtractor;
+import java.io.File;
+import java.io.FileOutputStream;
+import org.tmotte.pdfrpt.PageInfo;
+import org.tmotte.pdfrpt.report.item.PLine;
+import org.tmotte.pdfrpt.report.item.PText;
+import org.tmotte.pdfrpt.report.PageCount;
+import org.tmotte.pdfrpt.report.PGroup;
+import org.tmotte.pdfrpt.report.Report;
+import org.tmotte.pdfrpt.report.ReportItem;
+import org.tmotte.pdfrpt.SimplePDF;
+import org.tmotte.pdfrpt.test.ITest;
+
+/**
+ * Prints the same multi-page report with and without <code>Report.setStreaming()</code>,
+ * and verifies that both come out with the same number of pages, and that the deferred
+ * page total was filled in.
+ */
+public class TestStreaming implements ITest {
+
+  public static void main(String[] args) throws Exception {
+    new TestStreaming().test();
+  }
+
+  public @Override void test() throws Exception {
+    File buffered=new File("build", getClass().getName()+".buffered.pdf"),
+         streamed=new File("build", getClass().getName()+".pdf");
+    test(buffered, false);
+    test(streamed, true);
+    int a=new PdfReader(buffered.getPath()).getNumberOfPages();
+    PdfReader reader=new PdfReader(streamed.getPath());
+    int b=reader.getNumberOfPages();
+    if (a!=b)
+      throw new RuntimeException("Streamed report has "+b+" pages, expected "+a);
+    String text=PdfTextExtractor.getTextFromPage(reader, 1);
+    if (!text.contains("Page 1 of "+b))
+      throw new RuntimeException("Deferred page total missing from: "+text);
+    reader.close();
+  }
+
+  private void test(File file, boolean streaming) throws Exception {
+    try (
+      SimplePDF pdf=new SimplePDF(
+        new FileOutputStream(file),
+        new PageInfo(PageInfo.LETTER_PORTRAIT, 45)
+      )){
+      java.util.Random randomizer=new java.util.Random(1);
+      Report report=new Report(pdf);
+      if (streaming)
+        report.setStreaming(pdf);
+      PageCount pageCount=new PageCount().setDeferred(true);
+      ReportItem
+        footer=
+          new PText(pdf, pdf.getWidth(), "Page "+PText.REPLACE_CURR_PAGE+" of "+PText.REPLACE_PAGE_COUNT)
+            .rightAlign()
+            .setPageCount(pageCount)
+            .setTop(5)
+        ,
+        header=new PGroup().addVertical(
+          new PText(pdf, "STREAMING: "+streaming)
+          ,
+          new PLine(pdf.getWidth(), 0).setHeight(4).setTop(3)
+        );
+
+      report.addVertical(header);
+      for (int i=0; i<2000; i++) {
+        PGroup record=new PGroup();
+        int count=randomizer.nextInt(4)+1;
+        for (int a=0; a<count; a++)
+          record.addVertical(new PText(pdf, "Record "+i+"."+a));
+        report.addVertical(record, pageCount, footer, header);
+      }
+      report.addFooterAndPrint(footer, pdf);
+    }
+  }
+
+}
@@ -0,0 +1,143 @@
+package org.tmotte.pdfrpt.test.simplepdf;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.Pipe;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import org.tmotte.pdfrpt.ChannelOutputStream;
+import org.tmotte.pdfrpt.PageInfo;
+import org.tmotte.pdfrpt.SimplePDF;
+import org.tmotte.pdfrpt.test.ITest;
+import org.tmotte.pdfrpt.test.PDFAssert;
+
+/**
+ * Verifies that ChannelOutputStream delivers exactly the bytes written to it, in large chunks, both directly and
+ * spooled; that non-blocking channels are refused; and that a SimplePDF written to a channel matches one written
+ * to an OutputStream.
+ */
+public class TestChannelOutput implements ITest {
+
+  public static void main(String[] args) throws Exception {
+    new TestChannelOutput().test();
+  }
+
+  public @Override void test() throws Exception {
+    //Small & large writes, mixed, in the way iText does it:
+    Random random=new Random(1);
+    ByteArrayOutputStream expected=new ByteArrayOutputStream();
+    ByteArrayOutputStream direct=new ByteArrayOutputStream(), spooled=new ByteArrayOutputStream();
+    CountingChannel directChannel=new CountingChannel(direct), spooledChannel=new CountingChannel(spooled);
+    int streamWrites=0;
+    try (
+        ChannelOutputStream d=new ChannelOutputStream(directChannel);
+        ChannelOutputStream s=ChannelOutputStream.spooled(spooledChannel)
+      ) {
+      for (int i=0; i<20000; i++, streamWrites++) {
+        byte[] b=new byte[i % 1000==0 ?ChannelOutputStream.BUFFER_SIZE+random.nextInt(1000) :random.nextInt(20)];
+        random.nextBytes(b);
+        expected.write(b);
+        d.write(b);
+        s.write(b);
+        if (i % 7==0) {
+          expected.write(i);
+          d.write(i);
+          s.write(i);
+        }
+      }
+      if (spooled.size()>0)
+        throw new RuntimeException("Spooled output should not arrive before close");
+    }
+    check(expected.toByteArray(), direct.toByteArray(), "direct");
+    check(expected.toByteArray(), spooled.toByteArray(), "spooled");
+    if (!directChannel.closed || !spooledChannel.closed)
+      throw new RuntimeException("Channels were not closed");
+    if (directChannel.writes > expected.size()/ChannelOutputStream.BUFFER_SIZE + 1)
+      throw new RuntimeException("Too many channel writes: "+directChannel.writes+" for "+streamWrites+" stream writes");
+
+    //A PDF:
+    ByteArrayOutputStream fromStream=new ByteArrayOutputStream(), fromSpooled=new ByteArrayOutputStream();
+    print(new SimplePDF(fromStream, pageInfo()));
+    print(new SimplePDF(ChannelOutputStream.spooled(Channels.newChannel(fromSpooled)), pageInfo()));
+    File file=new File("build", getClass().getName()+".pdf");
+    print(new SimplePDF(
+      FileChannel.open(
+        file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING
+      ),
+      pageInfo()
+    ));
+    PDFAssert.assertSameContent(fromStream.toByteArray(), Files.readAllBytes(file.toPath()), "channel");
+    PDFAssert.assertSameContent(fromStream.toByteArray(), fromSpooled.toByteArray(), "spooled");
+
+    //Non-blocking channels would have to be written to in a loop until they took everything:
+    Pipe pipe=Pipe.open();
+    try {
+      pipe.sink().configureBlocking(false);
+      try {
+        new ChannelOutputStream(pipe.sink());
+        throw new IllegalStateException("Expected non-blocking channel to be refused");
+      } catch (RuntimeException e) {
+        if (e instanceof IllegalStateException)
+          throw e;
+      }
+      try {
+        ChannelOutputStream.spooled(pipe.sink());
+        throw new IllegalStateException("Expected non-blocking channel to be refused when spooling");
+      } catch (RuntimeException e) {
+        if (e instanceof IllegalStateException)
+          throw e;
+      }
+    } finally {
+      pipe.sink().close();
+      pipe.source().close();
+    }
+  }
+
+  private static PageInfo pageInfo() {
+    return new PageInfo(PageInfo.LETTER_PORTRAIT, 30);
+  }
+  private static void print(SimplePDF pdf) throws Exception {
+    try {
+      for (int page=0; page<10; page++) {
+        if (page>0)
+          pdf.newPage();
+        pdf.setXY(0, 0);
+        for (int i=0; i<60; i++)
+          pdf.draw("Page "+page+", line "+i).lineFeed();
+      }
+    } finally {
+      pdf.close();
+    }
+  }
+  private static void check(byte[] expected, byte[] actual, String name) {
+    if (!Arrays.equals(expected, actual))
+      throw new RuntimeException(name+": expected "+expected.length+" bytes, got "+actual.length);
+  }
+
+  /** Counts the writes that reach the channel. */
+  private static class CountingChannel implements WritableByteChannel {
+    final WritableByteChannel channel;
+    int writes=0;
+    boolean closed=false;
+    CountingChannel(ByteArrayOutputStream out) {
+      channel=Channels.newChannel(out);
+    }
+    public @Override int write(ByteBuffer src) throws IOException {
+      writes++;
+      return channel.write(src);
+    }
+    public @Override boolean isOpen() {
+      return !closed;
+    }
+    public @Override void close() throws IOException {
+      closed=true;
+      channel.close();
+    }
+  }
+}
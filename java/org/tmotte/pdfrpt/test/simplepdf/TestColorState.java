@@ -0,0 +1,67 @@
+package org.tmotte.pdfrpt.test.simplepdf;
+import com.itextpdf.text.BaseColor;
+import com.itextpdf.text.pdf.CMYKColor;
+import com.itextpdf.text.pdf.PdfReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import org.tmotte.pdfrpt.ColorCache;
+import org.tmotte.pdfrpt.FontInfo;
+import org.tmotte.pdfrpt.PageInfo;
+import org.tmotte.pdfrpt.SimplePDF;
+import org.tmotte.pdfrpt.test.ITest;
+
+/**
+ * Verifies that SimplePDF compares colors by value, and sets the fill color for text &amp; filled shapes and the
+ * stroke color for lines separately, each only when it changes.
+ */
+public class TestColorState implements ITest {
+
+  public static void main(String[] args) throws Exception {
+    new TestColorState().test();
+  }
+
+  public @Override void test() throws Exception {
+    if (ColorCache.get(10, 20, 30)!=ColorCache.get(new java.awt.Color(10, 20, 30)))
+      throw new RuntimeException("Colors were not interned");
+    if (!ColorCache.sameColor(new BaseColor(10, 20, 30), ColorCache.get(10, 20, 30)))
+      throw new RuntimeException("Same RGB values should be the same color");
+    if (ColorCache.sameColor(new BaseColor(255, 0, 0), new CMYKColor(0f, 1f, 1f, 0f)))
+      throw new RuntimeException("RGB and CMYK colors should differ");
+
+    ByteArrayOutputStream out=new ByteArrayOutputStream();
+    try (SimplePDF pdf=new SimplePDF(out, new PageInfo(PageInfo.LETTER_PORTRAIT, 30))) {
+      pdf.setFontInfo(new FontInfo(pdf.getFontInfo()).setColor((BaseColor)null));
+      //Text, in new but equal colors every time: one fill color.
+      for (int i=0; i<10; i++)
+        pdf.setColor(10, 20, 30).draw("Line "+i).lineFeed();
+      //Filled shapes in the same color: no change.
+      for (int i=0; i<5; i++)
+        pdf.setColor(new BaseColor(10, 20, 30)).fillRect(20, 5).moveY(10);
+      //Lines: one stroke color.
+      for (int i=0; i<5; i++)
+        pdf.setColor(new java.awt.Color(10, 20, 30)).drawLine(100, 0).moveY(10);
+      //Text in another color, then lines again: one more fill color, no more stroke colors.
+      pdf.setColor(200, 0, 0).draw("Red").lineFeed();
+      pdf.setColor(10, 20, 30).drawLine(100, 0);
+    }
+    try (FileOutputStream file=new FileOutputStream(new File("build", getClass().getName()+".pdf"))) {
+      file.write(out.toByteArray());
+    }
+
+    PdfReader reader=new PdfReader(out.toByteArray());
+    String content=new String(reader.getPageContent(1), "ISO-8859-1");
+    reader.close();
+    check(content, " rg", 2);
+    check(content, " RG", 1);
+  }
+
+  private static void check(String content, String operator, int expected) {
+    int count=0;
+    for (String line: content.split("\n"))
+      if (line.endsWith(operator))
+        count++;
+    if (count!=expected)
+      throw new RuntimeException("Expected "+expected+" of "+operator.trim()+", got "+count+" in:\n"+content);
+  }
+}
@@ -0,0 +1,72 @@
+package org.tmotte.pdfrpt.test.simplepdf;
+import com.itextpdf.text.Element;
+import com.itextpdf.text.Image;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import javax.imageio.ImageIO;
+import org.tmotte.pdfrpt.PageInfo;
+import org.tmotte.pdfrpt.SimplePDF;
+import org.tmotte.pdfrpt.test.ITest;
+
+/**
+ * Verifies that <code>SimplePDF.loadImage()</code> passes JPEG data through to iText untouched, and loads PNG, GIF
+ * and other formats at their proper size; draws them all for a visual check.
+ */
+public class TestImageLoading implements ITest {
+
+  public static void main(String[] args) throws Exception {
+    new TestImageLoading().test();
+  }
+
+  public @Override void test() throws Exception {
+    File jpegFile=new File("./lib/images/test2.jpg");
+    byte[] jpeg=Files.readAllBytes(jpegFile.toPath());
+    BufferedImage original=ImageIO.read(jpegFile);
+
+    Image fromStream=SimplePDF.loadImage(new FileInputStream(jpegFile)),
+          fromPath=SimplePDF.loadImage(jpegFile.toPath());
+    for (Image i: new Image[]{fromStream, fromPath})
+      if (i.type()!=Element.JPEG || !Arrays.equals(i.getRawData(), jpeg))
+        throw new RuntimeException("JPEG was not passed through as is");
+
+    //BMP isn't one of ours, so it goes through ImageIO:
+    Image png=check(encode(original, "png"), original, "png"),
+          gif=check(encode(original, "gif"), original, "gif"),
+          bmp=check(encode(original, "bmp"), original, "bmp");
+
+    try {
+      SimplePDF.loadImage("Not an image".getBytes("UTF-8"));
+      throw new IllegalStateException("Expected an exception");
+    } catch (RuntimeException e) {
+      if (e instanceof IllegalStateException)
+        throw e;
+    }
+
+    try (SimplePDF pdf=new SimplePDF(
+        new FileOutputStream(new File("build", getClass().getName()+".pdf")), new PageInfo(PageInfo.LETTER_PORTRAIT, 25)
+      )) {
+      for (Image i: new Image[]{fromStream, png, gif, bmp}) {
+        i.scaleToFit(150, 150);
+        pdf.draw(i).moveX(160);
+      }
+    }
+  }
+
+  private static byte[] encode(BufferedImage image, String format) throws Exception {
+    ByteArrayOutputStream out=new ByteArrayOutputStream();
+    if (!ImageIO.write(image, format, out))
+      throw new RuntimeException("Can't write "+format);
+    return out.toByteArray();
+  }
+  private static Image check(byte[] data, BufferedImage original, String format) throws Exception {
+    Image image=SimplePDF.loadImage(data);
+    if (image.getWidth()!=original.getWidth() || image.getHeight()!=original.getHeight())
+      throw new RuntimeException(format+": got "+image.getWidth()+"x"+image.getHeight());
+    return image;
+  }
+}
@@ -0,0 +1,100 @@
+package org.tmotte.pdfrpt.test.simplepdf;
+import com.itextpdf.text.BaseColor;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.parser.PdfTextExtractor;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import org.tmotte.pdfrpt.ColorCache;
+import org.tmotte.pdfrpt.FontInfo;
+import org.tmotte.pdfrpt.PageInfo;
+import org.tmotte.pdfrpt.SimplePDF;
+import org.tmotte.pdfrpt.test.ITest;
+
+/**
+ * Verifies that saveState() &amp; restoreState() nest to any depth, with and without q/Q operators, including
+ * across page breaks, and that both ways produce the same text.
+ */
+public class TestStateStack implements ITest {
+
+  public static void main(String[] args) throws Exception {
+    new TestStateStack().test();
+  }
+
+  public @Override void test() throws Exception {
+    byte[] plain=print(false), operators=print(true);
+    try (FileOutputStream out=new FileOutputStream(new File("build", getClass().getName()+".pdf"))) {
+      out.write(operators);
+    }
+    PdfReader a=new PdfReader(plain), b=new PdfReader(operators);
+    if (a.getNumberOfPages()!=b.getNumberOfPages())
+      throw new RuntimeException("Page counts differ");
+    for (int p=1; p<=a.getNumberOfPages(); p++) {
+      if (!PdfTextExtractor.getTextFromPage(a, p).equals(PdfTextExtractor.getTextFromPage(b, p)))
+        throw new RuntimeException("Text differs on page "+p);
+      String content=new String(b.getPageContent(p), "ISO-8859-1");
+      if (count(content, "q")!=count(content, "Q"))
+        throw new RuntimeException("Unbalanced q/Q on page "+p+":\n"+content);
+      if (count(new String(a.getPageContent(p), "ISO-8859-1"), "q")!=1)
+        throw new RuntimeException("Expected no q/Q other than iText's own on page "+p);
+    }
+    if (count(new String(b.getPageContent(1), "ISO-8859-1"), "q")<10)
+      throw new RuntimeException("Expected q/Q operators");
+    a.close();
+    b.close();
+
+    try {
+      new SimplePDF(new ByteArrayOutputStream()).restoreState();
+      throw new IllegalStateException("Expected an exception");
+    } catch (RuntimeException e) {
+      if (e instanceof IllegalStateException)
+        throw e;
+    }
+  }
+
+  private static byte[] print(boolean stateOperators) throws Exception {
+    ByteArrayOutputStream out=new ByteArrayOutputStream();
+    try (SimplePDF pdf=new SimplePDF(out, new PageInfo(PageInfo.LETTER_PORTRAIT, 30))) {
+      pdf.setStateOperators(stateOperators);
+      FontInfo base=pdf.getFontInfo();
+      nest(pdf, 0, 20);
+      if (pdf.getStateDepth()!=0 || pdf.getFontInfo()!=base || pdf.getLineWidth()!=1
+          || !ColorCache.sameColor(pdf.getColor(), BaseColor.BLACK))
+        throw new RuntimeException("State was not restored");
+
+      //A page break with states saved:
+      pdf.saveState().setColor(0, 0, 200).setLineWidth(3).saveState().setColor(200, 0, 0);
+      pdf.drawLine(100, 0).moveY(10).draw("Before the break").lineFeed();
+      pdf.newPage();
+      pdf.setXY(0, 0).drawLine(100, 0).moveY(10).draw("After the break, red").lineFeed();
+      pdf.restoreState().drawLine(100, 0).moveY(10).draw("Blue").lineFeed();
+      pdf.restoreState().drawLine(100, 0).moveY(10).draw("Black").lineFeed();
+    }
+    return out.toByteArray();
+  }
+  private static void nest(SimplePDF pdf, int depth, int max) {
+    if (depth==max)
+      return;
+    FontInfo font=pdf.getFontInfo();
+    BaseColor color=pdf.getColor();
+    float lineWidth=pdf.getLineWidth();
+    pdf.saveState()
+      .setFontInfo(new FontInfo(font, 8+depth))
+      .setColor(depth*10, 0, 255-depth*10)
+      .setLineWidth(1+depth/4f);
+    pdf.draw("Depth "+depth).lineFeed().drawLine(200, 0).moveY(4);
+    nest(pdf, depth+1, max);
+    pdf.fillRect(10, 2).moveY(4).draw("Back at "+depth).lineFeed();
+    pdf.restoreState();
+    if (pdf.getStateDepth()!=depth || pdf.getFontInfo()!=font || pdf.getLineWidth()!=lineWidth
+        || pdf.getColor()!=color)
+      throw new RuntimeException("State not restored at depth "+depth);
+  }
+  private static int count(String content, String operator) {
+    int count=0;
+    for (String line: content.split("\n"))
+      if (line.equals(operator))
+        count++;
+    return count;
+  }
+}
@@ -0,0 +1,218 @@
+package org.tmotte.pdfrpt.test.simplepdf;
+import com.itextpdf.text.Image;
+import com.itextpdf.text.io.RandomAccessSourceFactory;
+import com.itextpdf.text.pdf.PRTokeniser;
+import com.itextpdf.text.pdf.PdfContentParser;
+import com.itextpdf.text.pdf.PdfObject;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.PdfTemplate;
+import com.itextpdf.text.pdf.RandomAccessFileOrArray;
+import com.itextpdf.text.pdf.parser.ImageRenderInfo;
+import com.itextpdf.text.pdf.parser.PdfReaderContentParser;
+import com.itextpdf.text.pdf.parser.PdfTextExtractor;
+import com.itextpdf.text.pdf.parser.RenderListener;
+import com.itextpdf.text.pdf.parser.TextRenderInfo;
+import com.itextpdf.text.pdf.parser.Vector;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.tmotte.pdfrpt.FontInfo;
+import org.tmotte.pdfrpt.PageInfo;
+import org.tmotte.pdfrpt.SimplePDF;
+import org.tmotte.pdfrpt.test.ITest;
+
+/**
+ * Verifies that SimplePDF's shared text objects are well-formed: text mixed with lines, rectangles, images,
+ * templates, page totals, q/Q &amp; page breaks gives balanced BT/ET, with no graphics operators inside a text
+ * object, and the same text in the same places as when every draw gets a text object of its own; and that
+ * consecutive text draws really do share text objects.
+ */
+public class TestTextObjects implements ITest {
+
+  public static void main(String[] args) throws Exception {
+    new TestTextObjects().test();
+  }
+
+  private final static Set<String> notInText=new HashSet<>(Arrays.asList("re", "m", "l", "Do", "q"));
+
+  public @Override void test() throws Exception {
+    List<Integer> textDraws=new ArrayList<>(), unbatchedDraws=new ArrayList<>();
+    byte[] batched=print(false, textDraws), unbatched=print(true, unbatchedDraws);
+    try (FileOutputStream out=new FileOutputStream(new File("build", getClass().getName()+".pdf"))) {
+      out.write(batched);
+    }
+    PdfReader a=new PdfReader(unbatched), b=new PdfReader(batched);
+    if (a.getNumberOfPages()!=b.getNumberOfPages() || b.getNumberOfPages()!=textDraws.size())
+      throw new RuntimeException("Got "+b.getNumberOfPages()+" pages, expected "+a.getNumberOfPages());
+    for (int p=1; p<=b.getNumberOfPages(); p++) {
+      List<String> ops=operators(b.getPageContent(p));
+      int bt=checkTextObjects(ops, p);
+      if (bt>=textDraws.get(p-1))
+        throw new RuntimeException("Page "+p+" has "+bt+" text objects for "+textDraws.get(p-1)+" text draws");
+      if (checkTextObjects(operators(a.getPageContent(p)), p)!=unbatchedDraws.get(p-1))
+        throw new RuntimeException("Expected one text object per draw without batching, page "+p);
+
+      String expected=PdfTextExtractor.getTextFromPage(a, p), got=PdfTextExtractor.getTextFromPage(b, p);
+      if (!expected.equals(got))
+        throw new RuntimeException("Page "+p+" text differs; expected:\n"+expected+"\ngot:\n"+got);
+      List<String> expectedAt=positions(a, p), gotAt=positions(b, p);
+      if (!expectedAt.equals(gotAt))
+        throw new RuntimeException("Page "+p+" positions differ; expected:\n"+expectedAt+"\ngot:\n"+gotAt);
+    }
+    a.close();
+    b.close();
+  }
+
+  /**
+   * Prints the same three pages either way; <code>unbatched</code> ends the text object after every text draw,
+   * the way SimplePDF used to. Records the number of text draws on each page in <code>textDraws</code>.
+   */
+  private static byte[] print(boolean unbatched, List<Integer> textDraws) throws Exception {
+    ByteArrayOutputStream out=new ByteArrayOutputStream();
+    Image image=SimplePDF.loadImage(new File("./lib/images/test2.jpg").toPath());
+    image.scaleToFit(40, 40);
+    try (SimplePDF pdf=new SimplePDF(out, new PageInfo(PageInfo.LETTER_PORTRAIT, 30))) {
+      FontInfo plain=new FontInfo().setFontSize(9), bold=new FontInfo("Test2Reg.ttf", new File("./lib/fonts/nobile.ttf").toURI().toURL()).setFontSize(12);
+      int[] draws={0};
+      for (int page=1; page<=3; page++) {
+        if (page>1)
+          pdf.newPage();
+        pdf.setStateOperators(page==3);
+        draws[0]=0;
+
+        //Runs of text in assorted fonts, colors & alignments:
+        pdf.setFontInfo(bold).setXY(0, 0);
+        text(pdf, unbatched, draws, "Page "+page+" of ", 0);
+        pdf.drawPageTotal();
+        pdf.setFontInfo(plain).setXY(pdf.getWidth(), 0);
+        text(pdf, unbatched, draws, "Right aligned", 2);
+        for (int i=0; i<20; i++) {
+          pdf.setXY(0, 20+i*12);
+          pdf.setColor(i % 3==0 ?java.awt.Color.BLUE :java.awt.Color.BLACK);
+          text(pdf, unbatched, draws, "Row "+i+" ", 1);
+          text(pdf, unbatched, draws, "value "+(i*37), 1);
+          if (i % 4==0)
+            pdf.drawLine(100, 0);
+          if (i % 5==0)
+            pdf.setX(200).drawRect(50, 10);
+          if (i % 7==0)
+            pdf.setX(300).fillRect(20, 5);
+          pdf.setX(400);
+          text(pdf, unbatched, draws, "centered", 3);
+          if (i % 6==0)
+            pdf.saveState().setFontInfo(bold).setColor(java.awt.Color.RED);
+          pdf.setX(450);
+          text(pdf, unbatched, draws, "end", 0);
+          if (i % 6==0)
+            pdf.restoreState();
+        }
+
+        //An image between text:
+        pdf.setXY(0, 300);
+        text(pdf, unbatched, draws, "Before image", 0);
+        pdf.setXY(0, 315).draw(image);
+        pdf.setXY(50, 315);
+        text(pdf, unbatched, draws, "Beside image", 0);
+
+        //A template with text of its own, placed between text:
+        pdf.setXY(0, 400);
+        text(pdf, unbatched, draws, "Before template", 0);
+        pdf.setXY(0, 420);
+        PdfTemplate template=pdf.beginTemplate();
+        pdf.setFontInfo(bold);
+        pdf.draw("In template");
+        pdf.lineFeed().drawLine(80, 0);
+        pdf.endTemplate();
+        pdf.draw(template);
+        pdf.setFontInfo(plain).setXY(0, 460);
+        text(pdf, unbatched, draws, "After template", 0);
+        pdf.lineFeed();
+        text(pdf, unbatched, draws, "Last line", 0);
+        textDraws.add(draws[0]);
+      }
+    }
+    return out.toByteArray();
+  }
+  private static void text(SimplePDF pdf, boolean unbatched, int[] draws, String text, int how) {
+    if (how==0)
+      pdf.draw(text);
+    else
+    if (how==1)
+      pdf.drawAndMoveX(text);
+    else
+    if (how==2)
+      pdf.drawToLeft(text);
+    else
+      pdf.drawCentered(text, 60);
+    draws[0]++;
+    if (unbatched)
+      pdf.getInternalRenderer();
+  }
+
+  /**
+   * Checks that BT &amp; ET pair up with nothing but text operators between them, and returns the number of text
+   * objects that show text; iText starts each page with an empty one of its own.
+   */
+  private static int checkTextObjects(List<String> ops, int page) {
+    int shown=0;
+    boolean inText=false, showing=false;
+    for (String op: ops)
+      if (op.equals("BT")) {
+        if (inText)
+          throw new RuntimeException("Nested BT on page "+page);
+        inText=true;
+        showing=false;
+      }
+      else
+      if (op.equals("ET")) {
+        if (!inText)
+          throw new RuntimeException("ET without BT on page "+page);
+        inText=false;
+        if (showing)
+          shown++;
+      }
+      else
+      if (inText && notInText.contains(op))
+        throw new RuntimeException("Operator "+op+" inside a text object on page "+page+": "+ops);
+      else
+      if (op.equals("Tj") || op.equals("TJ"))
+        showing=true;
+    if (inText)
+      throw new RuntimeException("BT without ET on page "+page);
+    return shown;
+  }
+
+  private static List<String> operators(byte[] content) throws Exception {
+    PdfContentParser parser=new PdfContentParser(
+      new PRTokeniser(new RandomAccessFileOrArray(new RandomAccessSourceFactory().createSource(content)))
+    );
+    List<String> ops=new ArrayList<>();
+    ArrayList<PdfObject> operands=new ArrayList<>();
+    while (parser.parse(operands).size()>0) {
+      PdfObject op=operands.get(operands.size()-1);
+      if (op.type()==PdfContentParser.COMMAND_TYPE)
+        ops.add(op.toString());
+    }
+    return ops;
+  }
+
+  /** Every piece of text on the page with where it starts, templates included. */
+  private static List<String> positions(PdfReader reader, int page) throws Exception {
+    final List<String> found=new ArrayList<>();
+    new PdfReaderContentParser(reader).processContent(page, new RenderListener() {
+      public @Override void renderText(TextRenderInfo info) {
+        Vector v=info.getBaseline().getStartPoint();
+        found.add(String.format("%s@%.2f,%.2f", info.getText(), v.get(Vector.I1), v.get(Vector.I2)));
+      }
+      public @Override void beginTextBlock() {}
+      public @Override void endTextBlock() {}
+      public @Override void renderImage(ImageRenderInfo info) {}
+    });
+    return found;
+  }
+}
@@ -0,0 +1,77 @@
+package org.tmotte.pdfrpt.test.simplepdf;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.PdfWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import org.tmotte.pdfrpt.PageInfo;
+import org.tmotte.pdfrpt.SimplePDF;
+import org.tmotte.pdfrpt.WriterInfo;
+import org.tmotte.pdfrpt.test.ITest;
+import org.tmotte.pdfrpt.test.PDFAssert;
+
+/**
+ * Verifies that WriterInfo's settings take effect: the same page content comes out smaller with more compression,
+ * full compression produces PDF 1.5 object streams, and the PDF version can be set.
+ */
+public class TestWriterInfo implements ITest {
+
+  public static void main(String[] args) throws Exception {
+    new TestWriterInfo().test();
+  }
+
+  public @Override void test() throws Exception {
+    byte[] none=print(new WriterInfo().setCompressionLevel(WriterInfo.NO_COMPRESSION)),
+           standard=print(new WriterInfo()),
+           fast=print(WriterInfo.fastest()),
+           smallest=print(WriterInfo.smallest()),
+           version=print(new WriterInfo().setPdfVersion(PdfWriter.VERSION_1_7));
+    try (FileOutputStream out=new FileOutputStream(new File("build", getClass().getName()+".pdf"))) {
+      out.write(smallest);
+    }
+
+    if (!(smallest.length<standard.length && standard.length<none.length && fast.length<none.length))
+      throw new RuntimeException(
+        "Sizes: smallest "+smallest.length+", default "+standard.length+", fastest "+fast.length+", none "+none.length
+      );
+    PDFAssert.assertSameContent(standard, none, "No compression");
+    PDFAssert.assertSameContent(standard, fast, "Fastest");
+    PDFAssert.assertSameContent(standard, smallest, "Smallest");
+    PDFAssert.assertSameContent(standard, version, "PDF 1.7");
+
+    checkVersion(standard, '4');
+    checkVersion(smallest, '5');
+    checkVersion(version, '7');
+    if (!new String(smallest, "ISO-8859-1").contains("/ObjStm"))
+      throw new RuntimeException("Expected object streams with full compression");
+
+    try {
+      new WriterInfo().setCompressionLevel(10);
+      throw new IllegalStateException("Expected an exception");
+    } catch (RuntimeException e) {
+      if (e instanceof IllegalStateException)
+        throw e;
+    }
+  }
+
+  private static byte[] print(WriterInfo writerInfo) throws Exception {
+    ByteArrayOutputStream out=new ByteArrayOutputStream();
+    try (SimplePDF pdf=new SimplePDF(out, new PageInfo(PageInfo.LETTER_PORTRAIT, 30), writerInfo)) {
+      for (int page=0; page<5; page++) {
+        if (page>0)
+          pdf.newPage();
+        pdf.setXY(0, 0);
+        for (int i=0; i<60; i++)
+          pdf.draw("Page "+page+", line "+i+": the same old words, over and over again.").lineFeed();
+      }
+    }
+    return out.toByteArray();
+  }
+
+  private static void checkVersion(byte[] pdf, char version) throws Exception {
+    PdfReader reader=new PdfReader(pdf);
+    if (reader.getPdfVersion()!=version)
+      throw new RuntimeException("Expected PDF 1."+version+", got 1."+reader.getPdfVersion());
+    reader.close();
+  }
+}